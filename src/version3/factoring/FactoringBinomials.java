@@ -3,18 +3,19 @@ package version3.factoring;
 import version3.utilities.Expression;
 import version3.utilities.Fraction;
 import version3.utilities.Functions;
+import version3.utilities.Term;
 
 import java.math.BigInteger;
 import java.util.*;
 /**
  * Class utilized to factor a binomial expression as either a difference
- * of squares or a sum/difference of cubes.
+ * of squares or a sum/difference of nth powers for odd n.
  * @author Nathan Harbison
  */
 public class FactoringBinomials {
    /**
     * Factors a given binomial expression as either a difference
-    * of squares or a sum/difference of cubes.
+    * of squares or a sum/difference of nth powers for an odd prime n.
     *
     * @param exp the expression to be factored.
     * @return a list consisting of the factors of the expression, or just the
@@ -22,10 +23,11 @@ public class FactoringBinomials {
     */
    public static List<Expression> factor(Expression exp) {
       Set<Character> allVars = exp.getAllVars();
+      int power = commonPower(exp);
 
       if(isDifOfSqs(exp)) {
-         BigInteger coeff1Root = Functions.nthRoot(exp.getCoeff(0), 2);
-         BigInteger coeff2Root = Functions.nthRoot(exp.getCoeff(1).abs(), 2);
+         BigInteger coeff1Root = Functions.exactRoot(exp.getCoeff(0), 2).get();
+         BigInteger coeff2Root = Functions.exactRoot(exp.getCoeff(1).abs(), 2).get();
 
          Expression factor1 = new Expression();
          factor1.addReducedTerm(coeff1Root, exp.getVarPowers(0), new Fraction("1/2"));
@@ -38,20 +40,29 @@ public class FactoringBinomials {
          List<Expression> factors = factor(factor1);
          factors.addAll(factor(factor2));
          return factors;
-      } else if(allCubes(exp)) {
-         BigInteger coeff1Root = Functions.nthRoot(exp.getCoeff(0), 3);
-         BigInteger coeff2Root = Functions.nthRoot(exp.getCoeff(1), 3);
+      } else if(power / Integer.lowestOneBit(power) > 1) { // the power has an odd prime factor
+         // u^n + v^n = (u + v)(u^(n-1) - u^(n-2)v + ... + v^(n-1)) for the smallest odd prime n dividing the power
+         int n = smallestOddPrimeFactor(power);
+         BigInteger coeff1Root = Functions.exactRoot(exp.getCoeff(0), n).get();
+         BigInteger coeff2Root = Functions.exactRoot(exp.getCoeff(1), n).get();
 
          Expression exp1 = new Expression();
-         exp1.addReducedTerm(coeff1Root, exp.getVarPowers(0), new Fraction("1/3"));
-         exp1.addReducedTerm(coeff2Root, exp.getVarPowers(1), new Fraction("1/3"));
+         exp1.addReducedTerm(coeff1Root, exp.getVarPowers(0), new Fraction(1, n));
+         exp1.addReducedTerm(coeff2Root, exp.getVarPowers(1), new Fraction(1, n));
 
+         // the variables of the two terms are distinct, as their common factor has been pulled out
          Expression exp2 = new Expression();
-         exp2.addReducedTerm(coeff1Root.pow(2), exp.getVarPowers(0), new Fraction("2/3"));
-         Map<Character, Integer> combined = new HashMap<>(exp.getVarPowers(0));
-         combined.putAll(exp.getVarPowers(1));
-         exp2.addReducedTerm(coeff1Root.multiply(coeff2Root).negate(), combined, new Fraction("1/3"));
-         exp2.addReducedTerm(coeff2Root.pow(2), exp.getVarPowers(1), new Fraction("2/3"));
+         for(int i = 0; i < n; i++) {
+            BigInteger coeff = coeff1Root.pow(n - 1 - i).multiply(coeff2Root.pow(i));
+            Map<Character, Integer> vars = new HashMap<>();
+            for(char var : exp.getVarPowers(0).keySet())
+               if(i < n - 1)
+                  vars.put(var, exp.getPower(0, var) / n * (n - 1 - i));
+            for(char var : exp.getVarPowers(1).keySet())
+               if(i > 0)
+                  vars.put(var, exp.getPower(1, var) / n * i);
+            exp2.addTerm(new Term(i % 2 == 0 ? coeff : coeff.negate(), vars));
+         }
 
          List<Expression> factors = factor(exp1);
          // note: it is impossible to factor the secondary expression here as a quadratic
@@ -73,27 +84,41 @@ public class FactoringBinomials {
     * @return whether the given expression is difference of squares.
     */
    public static boolean isDifOfSqs(Expression exp) {
-      for(char var : exp.getAllVars())
-         for(int i = 0; i < exp.size(); i++)
-            if(exp.getPower(i, var) % 2 != 0)
-               return false;
       // first term should be positive (no abs), from calling getFactor
-      return Functions.isNthPower(exp.getCoeff(0), 2)
-              && Functions.isNthPower(exp.getCoeff(1).abs(), 2)
+      return commonPower(exp) % 2 == 0
+              && exp.getCoeff(0).compareTo(BigInteger.ZERO) > 0
               && exp.getCoeff(1).compareTo(BigInteger.ZERO) < 0;
    }
 
    /**
-    * Determines if each term in the given binomial expression are perfect cubes.
+    * Determines the largest n such that both terms of the given binomial expression are
+    * perfect nth powers, ignoring the signs of their coefficients, from the powers of their
+    * variables and the perfect power decompositions of their coefficients.
     * @param exp the binomial expression to be processed.
-    * @return whether the given expression contains all cubes.
+    * @return the largest common power of the terms, at least 1.
     */
-   public static boolean allCubes(Expression exp) {
-      for(char var : exp.getAllVars())
-         for(int i = 0; i < exp.size(); i++)
-            if(exp.getPower(i, var) % 3 != 0)
-               return false;
-      return Functions.isNthPower(exp.getCoeff(0), 3)
-              && Functions.isNthPower(exp.getCoeff(1).abs(), 3);
+   private static int commonPower(Expression exp) {
+      int power = 0;
+      for(int i = 0; i < exp.size(); i++) {
+         for(char var : exp.getVarPowers(i).keySet())
+            power = (int) Functions.gcd(power, exp.getPower(i, var));
+         // 1 is a perfect nth power for every n
+         if(!exp.getCoeff(i).abs().equals(BigInteger.ONE))
+            power = (int) Functions.gcd(power, Functions.perfectPower(exp.getCoeff(i).abs()).getValue());
+      }
+      return Math.max(power, 1);
+   }
+
+   /**
+    * Finds the smallest odd prime factor of the given integer.
+    * @param num the integer to be processed, which is not a power of 2.
+    * @return the smallest odd prime factor of the integer.
+    */
+   private static int smallestOddPrimeFactor(int num) {
+      num /= Integer.lowestOneBit(num);
+      for(int factor = 3; factor <= num / factor; factor += 2)
+         if(num % factor == 0)
+            return factor;
+      return num;
    }
-}
\ No newline at end of file
+}
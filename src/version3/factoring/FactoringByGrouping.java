@@ -78,7 +78,7 @@ public class FactoringByGrouping
       List<Integer> posSqInd = new ArrayList<>();
       List<Integer> negSqInd = new ArrayList<>();
       loop: for(int i = 0; i < exp.size(); i++) {
-         if(!Functions.isNthPower(exp.getCoeff(i).abs(), 2))
+         if(Functions.exactRoot(exp.getCoeff(i).abs(), 2).isEmpty())
             continue loop;
          for(char var : exp.getAllVars())
             if(exp.getPower(i, var) % 2 != 0)
@@ -108,8 +108,8 @@ public class FactoringByGrouping
     */
    private static List<Expression> factorSquares(Expression exp, int posInd, int negInd) {
       // factor two terms given by indices as difference of squares
-      BigInteger posSqRoot = Functions.nthRoot(exp.getCoeff(posInd), 2);
-      BigInteger negSqRoot = Functions.nthRoot(exp.getCoeff(negInd).abs(), 2);
+      BigInteger posSqRoot = Functions.exactRoot(exp.getCoeff(posInd), 2).get();
+      BigInteger negSqRoot = Functions.exactRoot(exp.getCoeff(negInd).abs(), 2).get();
 
       Expression sumRt = new Expression();
       sumRt.addReducedTerm(posSqRoot, exp.getVarPowers(posInd), new Fraction("1/2"));
@@ -174,11 +174,11 @@ public class FactoringByGrouping
          Optional<Expression> sqrtOpt = sqrt(exp, negInd, otherIndices.get(i), otherIndices.get((i + 1) % 2));
          if(sqrtOpt.isPresent()) {
             Expression factor1 = new Expression(sqrtOpt.get());
-            factor1.addReducedTerm(0, Functions.nthRoot(exp.getCoeff(posInd), 2), exp.getVarPowers(posInd), new Fraction("1/2"));
+            factor1.addReducedTerm(0, posSqRoot, exp.getVarPowers(posInd), new Fraction("1/2"));
 
             Expression factor2 = new Expression(sqrtOpt.get());
             factor2.multiply(-1);
-            factor2.addReducedTerm(0, Functions.nthRoot(exp.getCoeff(posInd), 2), exp.getVarPowers(posInd), new Fraction("1/2"));
+            factor2.addReducedTerm(0, posSqRoot, exp.getVarPowers(posInd), new Fraction("1/2"));
 
             List<Expression> factored = new ArrayList<>();
             if(Functions.canBeQuadFactored(factor1))
@@ -217,13 +217,15 @@ public class FactoringByGrouping
       boolean posCoeff2 = exp.getCoeff(ind2).compareTo(BigInteger.ZERO) > 0;
       boolean posCoeff3 = exp.getCoeff(ind3).compareTo(BigInteger.ZERO) > 0;
 
-      if(!Functions.isNthPower(absCoeff1, 2) || !Functions.isNthPower(absCoeff3, 2))
-         return Optional.empty();
       if(posCoeff1 != posCoeff3)
          return Optional.empty();
+      Optional<BigInteger> coeff1RtOpt = Functions.exactRoot(absCoeff1, 2);
+      Optional<BigInteger> coeff3RtOpt = Functions.exactRoot(absCoeff3, 2);
+      if(coeff1RtOpt.isEmpty() || coeff3RtOpt.isEmpty())
+         return Optional.empty();
 
-      BigInteger coeff1Rt = Functions.nthRoot(absCoeff1, 2);
-      BigInteger coeff3Rt = Functions.nthRoot(absCoeff3, 2);
+      BigInteger coeff1Rt = coeff1RtOpt.get();
+      BigInteger coeff3Rt = coeff3RtOpt.get();
       if(!coeff1Rt.multiply(coeff3Rt).multiply(BigInteger.valueOf(2)).equals(absCoeff2))
          return Optional.empty();
 
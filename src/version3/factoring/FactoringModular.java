@@ -0,0 +1,627 @@
+package version3.factoring;
+
+import version3.utilities.Lattice;
+import version3.utilities.ModularPolynomials;
+import version3.utilities.Polynomial;
+import version3.utilities.PrimeSieve;
+import version3.utilities.RootBounds;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Class utilized to completely factor a square-free polynomial over the integers via the
+ * Berlekamp-Zassenhaus algorithm: the polynomial is factored modulo a small prime p, the
+ * factorization is lifted to one modulo a power of p exceeding a bound on the coefficients
+ * of any factor via Hensel lifting, and the lifted factors are recombined into the factors
+ * over the integers by trying products of increasing numbers of them. The degrees of the
+ * modular factors for several primes limit the degrees a factor can have, which often shows
+ * a polynomial is irreducible without any lifting.
+ * @author Nathan Harbison
+ */
+public class FactoringModular {
+   /** The number of suitable primes tried, keeping the one with the fewest modular factors. */
+   private static final int PRIME_TRIALS = 5;
+   /** The bound on the primes tried, after which the polynomial is assumed not square-free. */
+   private static final int MAX_PRIME = 1 << 12;
+   /** The number of modular factors from which they are recombined via lattice reduction. */
+   private static final int LATTICE_FACTORS = 10;
+   /** The number of bits kept of each power sum beyond the number of modular factors. */
+   private static final int EXTRA_BITS = 16;
+
+   /**
+    * Factors a given square-free polynomial into irreducible factors over the integers.
+    * @param poly the square-free polynomial to be factored.
+    * @return a list of the factors of the polynomial, whose product is the polynomial (with
+    * its content in the first factor), or just the given polynomial if it is irreducible or
+    * not square-free.
+    */
+   public static List<Polynomial> factor(Polynomial poly) {
+      if(poly.degree() < 2)
+         return new ArrayList<>(List.of(poly));
+      BigInteger content = poly.content();
+      Polynomial primitive = poly.primitivePart();
+
+      // choose the prime giving the fewest modular factors, to recombine as few as possible,
+      // keeping only the degrees of factors possible modulo every prime tried
+      long bestPrime = 0;
+      int bestCount = Integer.MAX_VALUE, trials = 0;
+      BitSet allowed = null;
+      for(int prime : PrimeSieve.primesUpTo(MAX_PRIME)) {
+         long[] reduced = ModularPolynomials.reduce(primitive, prime);
+         if(reduced.length != primitive.degree() + 1 || !ModularPolynomials.isSquareFree(reduced, prime))
+            continue;
+         List<Integer> degrees = ModularPolynomials.factorDegrees(reduced, prime);
+         BitSet sums = subsetSums(degrees);
+         if(allowed == null)
+            allowed = sums;
+         else
+            allowed.and(sums);
+         if(degrees.size() < bestCount) {
+            bestPrime = prime;
+            bestCount = degrees.size();
+         }
+         // only the trivial factors 1 and f are possible, so f is irreducible
+         if(allowed.cardinality() == 2 || ++trials == PRIME_TRIALS)
+            break;
+      }
+      if(bestPrime == 0 || bestCount <= 1 || allowed.cardinality() == 2)
+         return new ArrayList<>(List.of(poly));
+
+      List<long[]> modFactors = ModularPolynomials.factorSquareFree(ModularPolynomials.reduce(primitive, bestPrime), bestPrime);
+      // with many modular factors, lift far enough to recombine them via lattice reduction
+      BigInteger bound = mignotteBound(primitive).shiftLeft(1);
+      double scaleBits = powerSumScaleBits(primitive);
+      boolean useLattice = modFactors.size() >= LATTICE_FACTORS && Double.isFinite(scaleBits);
+      if(useLattice) {
+         int columns = Math.min(primitive.degree(), modFactors.size());
+         double bits = powerSumBits(primitive.degree(), scaleBits, columns) + modFactors.size() + EXTRA_BITS;
+         bound = bound.max(BigInteger.ONE.shiftLeft((int) Math.ceil(bits)).multiply(BigInteger.valueOf(bestPrime)));
+      }
+      List<BigInteger> moduli = liftingModuli(BigInteger.valueOf(bestPrime), bound);
+      BigInteger modulus = moduli.get(moduli.size() - 1);
+      BigInteger[] reduced = new BigInteger[primitive.degree() + 1];
+      for(int power = 0; power < reduced.length; power++)
+         reduced[power] = primitive.getCoeff(power).mod(modulus);
+      List<BigInteger[]> lifted = liftFactors(reduced, modFactors, bestPrime, moduli);
+
+      Optional<List<Polynomial>> latticeFactors = useLattice
+              ? recombineLattice(primitive, lifted, bestPrime, modulus, scaleBits) : Optional.empty();
+      List<Polynomial> factors = latticeFactors.isPresent()
+              ? new ArrayList<>(latticeFactors.get()) : recombine(primitive, lifted, modulus, allowed);
+      if(!content.equals(BigInteger.ONE))
+         factors.set(0, scale(factors.get(0), content));
+      return factors;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Hensel lifting
+
+   /**
+    * Finds the moduli p^k to lift a factorization modulo p through, from p^2 or so up to the
+    * first power exceeding the given bound, each power at most squaring the last.
+    * @param p the prime.
+    * @param bound the bound to exceed.
+    * @return the increasing powers of p, starting with p and ending with the final modulus.
+    */
+   private static List<BigInteger> liftingModuli(BigInteger p, BigInteger bound) {
+      int exponent = 1;
+      for(BigInteger power = p; power.compareTo(bound) <= 0; power = power.multiply(p))
+         exponent++;
+      // halve the final exponent (rounding up) until reaching 1, so no step overshoots
+      List<Integer> exponents = new ArrayList<>();
+      for(; exponent > 1; exponent = (exponent + 1) / 2)
+         exponents.add(exponent);
+      exponents.add(1);
+      Collections.reverse(exponents);
+
+      List<BigInteger> moduli = new ArrayList<>();
+      for(int exp : exponents)
+         moduli.add(p.pow(exp));
+      return moduli;
+   }
+
+   /**
+    * Lifts the factorization f = lc(f) * g_1 * ... * g_r modulo p into monic factors to one
+    * modulo the final modulus, splitting the factors into two halves and lifting the
+    * factorization into their products, and then lifting each half in turn.
+    * @param poly the polynomial f, with coefficients modulo the final modulus.
+    * @param modFactors the monic irreducible factors of f modulo p.
+    * @param p the prime.
+    * @param moduli the powers of p to lift through, starting with p.
+    * @return the monic lifted factors, in the same order, with coefficients in [0, modulus).
+    */
+   private static List<BigInteger[]> liftFactors(BigInteger[] poly, List<long[]> modFactors, long p,
+                                                 List<BigInteger> moduli) {
+      BigInteger modulus = moduli.get(moduli.size() - 1);
+      if(modFactors.size() == 1) {
+         BigInteger leadInverse = poly[poly.length - 1].modInverse(modulus);
+         List<BigInteger[]> lifted = new ArrayList<>();
+         lifted.add(scaleMod(poly, leadInverse, modulus));
+         return lifted;
+      }
+
+      // f = g * h, with g holding the leading coefficient and the first half of the factors
+      List<long[]> first = modFactors.subList(0, modFactors.size() / 2);
+      List<long[]> second = modFactors.subList(modFactors.size() / 2, modFactors.size());
+      long[] g = {poly[poly.length - 1].mod(moduli.get(0)).longValue()}, h = {1};
+      for(long[] factor : first)
+         g = ModularPolynomials.multiply(g, factor, p);
+      for(long[] factor : second)
+         h = ModularPolynomials.multiply(h, factor, p);
+      long[][] bezout = ModularPolynomials.extendedGcd(g, h, p);
+      BigInteger[][] liftedPair = henselLift(poly, toBig(g), toBig(h), toBig(bezout[1]), toBig(bezout[2]), moduli);
+
+      List<BigInteger[]> lifted = liftFactors(liftedPair[0], first, p, moduli);
+      lifted.addAll(liftFactors(liftedPair[1], second, p, moduli));
+      return lifted;
+   }
+
+   /**
+    * Lifts a factorization f = g * h modulo p, with h monic and s * g + t * h = 1 modulo p,
+    * to one modulo each of the given powers of p in turn (von zur Gathen and Gerhard's
+    * quadratic Hensel step, which is valid as each power at most squares the last).
+    * @param f the polynomial being factored, modulo the final modulus.
+    * @param g the factor of f with its leading coefficient.
+    * @param h the monic factor of f.
+    * @param s the Bezout coefficient of g, of lower degree than h.
+    * @param t the Bezout coefficient of h, of lower degree than g.
+    * @param moduli the powers of p to lift through, starting with p.
+    * @return an array of the lifted factors g and h.
+    */
+   private static BigInteger[][] henselLift(BigInteger[] f, BigInteger[] g, BigInteger[] h, BigInteger[] s,
+                                            BigInteger[] t, List<BigInteger> moduli) {
+      for(int i = 1; i < moduli.size(); i++) {
+         BigInteger mod = moduli.get(i);
+         BigInteger[] error = subtract(f, multiply(g, h, mod), mod);
+         BigInteger[][] quotRem = divideMonic(multiply(s, error, mod), h, mod);
+         g = add(g, add(multiply(t, error, mod), multiply(quotRem[0], g, mod), mod), mod);
+         h = add(h, quotRem[1], mod);
+         if(i == moduli.size() - 1)
+            break;
+
+         // lift the Bezout coefficients too, for the next step
+         BigInteger[] bezoutError = subtract(add(multiply(s, g, mod), multiply(t, h, mod), mod),
+                 new BigInteger[] {BigInteger.ONE}, mod);
+         BigInteger[][] bezoutQuotRem = divideMonic(multiply(s, bezoutError, mod), h, mod);
+         s = subtract(s, bezoutQuotRem[1], mod);
+         t = subtract(t, add(multiply(t, bezoutError, mod), multiply(bezoutQuotRem[0], g, mod), mod), mod);
+      }
+      return new BigInteger[][] {g, h};
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Recombination
+
+   /**
+    * Recombines the lifted modular factors of a primitive polynomial into its factors over
+    * the integers, by trying products of 1, 2, ... of the remaining lifted factors (times
+    * the leading coefficient) as divisors, skipping those whose degree is impossible for a
+    * factor and first testing only their constant terms.
+    * @param poly the primitive polynomial f.
+    * @param lifted the monic factors of f modulo the modulus.
+    * @param modulus the modulus, exceeding twice the bound on the coefficients of any factor.
+    * @param allowed the possible degrees of factors of f.
+    * @return the irreducible factors of f over the integers.
+    */
+   private static List<Polynomial> recombine(Polynomial poly, List<BigInteger[]> lifted, BigInteger modulus,
+                                             BitSet allowed) {
+      List<Polynomial> factors = new ArrayList<>();
+      List<BigInteger[]> remaining = new ArrayList<>(lifted);
+      Polynomial rest = poly;
+      for(int size = 1; 2 * size <= remaining.size(); ) {
+         Optional<Polynomial> found = Optional.empty();
+         int[] subset = new int[size];
+         for(int i = 0; i < size; i++)
+            subset[i] = i;
+         do {
+            int degree = 0;
+            for(int index : subset)
+               degree += remaining.get(index).length - 1;
+            if(allowed.get(degree))
+               found = tryDivisor(rest, remaining, subset, modulus);
+         } while(found.isEmpty() && nextCombination(subset, remaining.size()));
+
+         if(found.isEmpty()) {
+            size++;
+            continue;
+         }
+         factors.add(found.get());
+         rest = rest.divide(found.get()).get().quotient();
+         for(int i = size - 1; i >= 0; i--)
+            remaining.remove(subset[i]);
+      }
+      factors.add(rest);
+      return factors;
+   }
+
+   /**
+    * Recombines the lifted modular factors f_1, ..., f_r of a primitive polynomial via lattice
+    * reduction (van Hoeij's algorithm). A factor g over the integers is the product of the f_i
+    * for i in some subset, so for each j, lc^j times the sum of the j-th powers of the roots of
+    * g is a small integer congruent to the sum of those of the f_i. Each such congruence adds
+    * a column (of its top bits) to a lattice containing the 0-1 vectors of the true factors,
+    * which lattice reduction then cuts down until it is spanned by those vectors alone.
+    * @param poly the primitive polynomial f.
+    * @param lifted the monic factors of f modulo the modulus.
+    * @param p the prime the factors were lifted from.
+    * @param modulus the power of p the factors were lifted to.
+    * @param scaleBits the base 2 logarithm of a bound on |lc| times the roots of f.
+    * @return the irreducible factors of f over the integers, or nothing if the precision of
+    * the lifted factors ran out before the true factors were found.
+    */
+   private static Optional<List<Polynomial>> recombineLattice(Polynomial poly, List<BigInteger[]> lifted, long p,
+                                                              BigInteger modulus, double scaleBits) {
+      int r = lifted.size(), n = poly.degree();
+      BigInteger prime = BigInteger.valueOf(p);
+      int exponent = 0;
+      for(BigInteger power = BigInteger.ONE; power.compareTo(modulus) < 0; power = power.multiply(prime))
+         exponent++;
+      // each column keeps the top (at least) r + EXTRA_BITS bits of the power sums
+      double logP = Math.log(p) / Math.log(2);
+      int cutExponent = (int) Math.ceil((r + EXTRA_BITS) / logP);
+      BigInteger cutModulus = prime.pow(cutExponent);
+      int columns = 0;
+      while(columns < n && exponent - Math.ceil(powerSumBits(n, scaleBits, columns + 1) / logP) >= cutExponent)
+         columns++;
+      if(columns == 0)
+         return Optional.empty();
+
+      BigInteger[][] sums = new BigInteger[r][];
+      for(int i = 0; i < r; i++)
+         sums[i] = powerSums(lifted.get(i), poly.leadingCoeff(), columns, modulus);
+
+      BigInteger[][] basis = new BigInteger[r][r];
+      for(int i = 0; i < r; i++)
+         for(int j = 0; j < r; j++)
+            basis[i][j] = i == j ? BigInteger.ONE : BigInteger.ZERO;
+      for(int j = 1; j <= columns; j++) {
+         // the sum over a true factor is below the divisor, so its column is at most 1 + r/2
+         BigInteger divisor = prime.pow(exponent - cutExponent), half = divisor.shiftRight(1);
+         BigInteger[] column = new BigInteger[r];
+         for(int i = 0; i < r; i++)
+            column[i] = sums[i][j - 1].add(half).divide(divisor);
+
+         BigInteger[][] extended = new BigInteger[basis.length + 1][];
+         for(int row = 0; row < basis.length; row++) {
+            extended[row] = Arrays.copyOf(basis[row], basis[row].length + 1);
+            BigInteger entry = BigInteger.ZERO;
+            for(int i = 0; i < r; i++)
+               entry = entry.add(basis[row][i].multiply(column[i]));
+            extended[row][basis[row].length] = symmetric(entry.mod(cutModulus), cutModulus);
+         }
+         extended[basis.length] = new BigInteger[basis[0].length + 1];
+         Arrays.fill(extended[basis.length], BigInteger.ZERO);
+         extended[basis.length][basis[0].length] = cutModulus;
+
+         // every vector of a true factor has length at most sqrt(r + j * (1 + r/2)^2)
+         BigInteger boundSquared = BigInteger.valueOf(4L * r + (long) j * (r + 2) * (r + 2) + 3).shiftRight(2);
+         BigInteger[][] reduced = Lattice.reduce(extended);
+         basis = Arrays.copyOf(reduced, Lattice.shortPrefix(reduced, boundSquared));
+         if(basis.length == 0)
+            return Optional.empty();
+         if(basis.length == 1)
+            return Optional.of(List.of(poly));
+
+         Optional<List<Polynomial>> factors = partitionFactors(poly, lifted, basis, modulus);
+         if(factors.isPresent())
+            return factors;
+      }
+      return Optional.empty();
+   }
+
+   /**
+    * Finds the factors given by a reduced lattice basis, if it is spanned by the 0-1 vectors
+    * of a partition of the lifted factors, in which case the factors in each part have the
+    * same column in the basis.
+    * @param poly the primitive polynomial.
+    * @param lifted the monic factors of the polynomial modulo the modulus.
+    * @param basis the reduced basis, whose first entries correspond to the lifted factors.
+    * @param modulus the modulus of the lifted factors.
+    * @return the factors of the polynomial given by each part, or nothing if the basis does
+    * not give a partition into factors over the integers.
+    */
+   private static Optional<List<Polynomial>> partitionFactors(Polynomial poly, List<BigInteger[]> lifted,
+                                                              BigInteger[][] basis, BigInteger modulus) {
+      Map<List<BigInteger>, List<Integer>> parts = new LinkedHashMap<>();
+      for(int i = 0; i < lifted.size(); i++) {
+         List<BigInteger> column = new ArrayList<>();
+         for(BigInteger[] row : basis)
+            column.add(row[i]);
+         parts.computeIfAbsent(column, key -> new ArrayList<>()).add(i);
+      }
+      if(parts.size() != basis.length)
+         return Optional.empty();
+
+      List<Polynomial> factors = new ArrayList<>();
+      Polynomial rest = poly;
+      for(List<Integer> part : parts.values()) {
+         if(factors.size() == parts.size() - 1) {
+            factors.add(rest);
+            break;
+         }
+         int[] subset = part.stream().mapToInt(Integer::intValue).toArray();
+         Optional<Polynomial> found = tryDivisor(rest, lifted, subset, modulus);
+         if(found.isEmpty())
+            return Optional.empty();
+         factors.add(found.get());
+         rest = rest.divide(found.get()).get().quotient();
+      }
+      return Optional.of(factors);
+   }
+
+   /**
+    * Determines if the product of the given lifted factors, times the leading coefficient of
+    * the polynomial, gives a factor of the polynomial over the integers.
+    * @param poly the polynomial.
+    * @param lifted the monic factors of the polynomial modulo the modulus.
+    * @param subset the indices of the factors in the product.
+    * @param modulus the modulus of the lifted factors.
+    * @return the primitive factor of the polynomial, or nothing if the product does not give one.
+    */
+   private static Optional<Polynomial> tryDivisor(Polynomial poly, List<BigInteger[]> lifted, int[] subset,
+                                                  BigInteger modulus) {
+      // the constant term of the factor must divide that of the polynomial
+      BigInteger lead = poly.leadingCoeff(), constant = lead;
+      for(int index : subset)
+         constant = constant.multiply(lifted.get(index)[0]).mod(modulus);
+      constant = symmetric(constant, modulus);
+      BigInteger polyConstant = lead.multiply(poly.constantCoeff());
+      if(constant.signum() == 0 ? polyConstant.signum() != 0 : polyConstant.mod(constant.abs()).signum() != 0)
+         return Optional.empty();
+
+      BigInteger[] product = {lead.mod(modulus)};
+      for(int index : subset)
+         product = multiply(product, lifted.get(index), modulus);
+      for(int power = 0; power < product.length; power++)
+         product[power] = symmetric(product[power], modulus);
+      Polynomial candidate = Polynomial.fromAscending(product).primitivePart();
+      Optional<Polynomial.DivisionResult> division = poly.divide(candidate);
+      if(division.isPresent() && division.get().remainder().isZero())
+         return Optional.of(candidate);
+      return Optional.empty();
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Finds a bound on the coefficients of any factor of the polynomial times its leading
+    * coefficient, via Mignotte's bound |g|_inf <= 2^deg(g) * |f|_2.
+    * @param poly the polynomial f.
+    * @return the bound on the coefficients.
+    */
+   private static BigInteger mignotteBound(Polynomial poly) {
+      BigInteger sumSquares = BigInteger.ZERO;
+      for(int power = 0; power <= poly.degree(); power++)
+         sumSquares = sumSquares.add(poly.getCoeff(power).pow(2));
+      BigInteger norm = sumSquares.sqrt().add(BigInteger.ONE);
+      return norm.multiply(poly.leadingCoeff().abs()).shiftLeft(poly.degree());
+   }
+
+   /**
+    * Finds the base 2 logarithm of a bound on |lc| times the magnitude of any root of the
+    * polynomial, so that |lc|^j times the sum of the j-th powers of the roots of any factor
+    * is at most n times its j-th power.
+    * @param poly the polynomial of degree n, with leading coefficient lc.
+    * @return the base 2 logarithm of the bound, which may be infinite.
+    */
+   private static double powerSumScaleBits(Polynomial poly) {
+      BigInteger[] coeffs = new BigInteger[poly.degree() + 1];
+      for(int power = 0; power <= poly.degree(); power++)
+         coeffs[poly.degree() - power] = poly.getCoeff(power);
+      double rootBound = Math.max(new RootBounds(coeffs).getUpper(), 1);
+      return poly.leadingCoeff().abs().bitLength() + Math.log(rootBound) / Math.log(2);
+   }
+
+   /**
+    * Finds the base 2 logarithm of the bound on |lc|^j times the sum of the j-th powers of
+    * the roots of any factor of a polynomial.
+    * @param n the degree of the polynomial.
+    * @param scaleBits the base 2 logarithm of a bound on |lc| times the roots.
+    * @param j the power.
+    * @return the base 2 logarithm of the bound.
+    */
+   private static double powerSumBits(int n, double scaleBits, int j) {
+      return Math.log(n) / Math.log(2) + j * scaleBits + 1;
+   }
+
+   /**
+    * Finds the sums of the first few powers of the roots of a monic polynomial modulo m, via
+    * Newton's identities s_k = -(k * c_(d-k) + c_(d-1) * s_(k-1) + ... + c_(d-k+1) * s_1),
+    * where c_i is the coefficient of x^i (0 for negative i), and scales the k-th by lc^k.
+    * @param poly the monic polynomial of degree d.
+    * @param lead the scale lc.
+    * @param count the number of sums.
+    * @param mod the modulus.
+    * @return an array whose entry k - 1 is lc^k times the sum of the k-th powers of the
+    * roots, in [0, mod).
+    */
+   private static BigInteger[] powerSums(BigInteger[] poly, BigInteger lead, int count, BigInteger mod) {
+      int d = poly.length - 1;
+      BigInteger[] sums = new BigInteger[count];
+      for(int k = 1; k <= count; k++) {
+         BigInteger sum = k <= d ? poly[d - k].multiply(BigInteger.valueOf(k)) : BigInteger.ZERO;
+         for(int m = 1; m < k && m <= d; m++)
+            sum = sum.add(poly[d - m].multiply(sums[k - m - 1]));
+         sums[k - 1] = sum.negate().mod(mod);
+      }
+      BigInteger scale = BigInteger.ONE;
+      for(int k = 1; k <= count; k++) {
+         scale = scale.multiply(lead).mod(mod);
+         sums[k - 1] = sums[k - 1].multiply(scale).mod(mod);
+      }
+      return sums;
+   }
+
+   /**
+    * Finds the possible degrees of factors of a polynomial with irreducible factors of the
+    * given degrees modulo some prime, i.e. the sums of subsets of those degrees.
+    * @param degrees the degrees of the irreducible modular factors.
+    * @return the set of sums of subsets of the degrees.
+    */
+   private static BitSet subsetSums(List<Integer> degrees) {
+      BitSet sums = new BitSet();
+      sums.set(0);
+      for(int degree : degrees)
+         for(int sum = sums.length() - 1; sum >= 0; sum = sums.previousSetBit(sum - 1))
+            sums.set(sum + degree);
+      return sums;
+   }
+
+   /**
+    * Advances the given combination of indices to the next in lexicographic order.
+    * @param subset the increasing indices, each below n.
+    * @param n the number of indices to choose from.
+    * @return whether there was a next combination.
+    */
+   private static boolean nextCombination(int[] subset, int n) {
+      int i = subset.length - 1;
+      while(i >= 0 && subset[i] == n - subset.length + i)
+         i--;
+      if(i < 0)
+         return false;
+      subset[i]++;
+      for(int j = i + 1; j < subset.length; j++)
+         subset[j] = subset[j - 1] + 1;
+      return true;
+   }
+
+   /**
+    * Finds the representative of a residue in (-modulus / 2, modulus / 2].
+    * @param num the residue, in [0, modulus).
+    * @param modulus the modulus.
+    * @return the symmetric representative of the residue.
+    */
+   private static BigInteger symmetric(BigInteger num, BigInteger modulus) {
+      return num.shiftLeft(1).compareTo(modulus) > 0 ? num.subtract(modulus) : num;
+   }
+
+   /**
+    * Multiplies the given polynomial by a constant.
+    * @param poly the polynomial.
+    * @param scalar the constant.
+    * @return the scaled polynomial.
+    */
+   private static Polynomial scale(Polynomial poly, BigInteger scalar) {
+      BigInteger[] scaled = new BigInteger[poly.degree() + 1];
+      for(int power = 0; power < scaled.length; power++)
+         scaled[power] = poly.getCoeff(power).multiply(scalar);
+      return Polynomial.fromAscending(scaled);
+   }
+
+   /**
+    * Converts the coefficients of a polynomial modulo p to BigIntegers.
+    * @param poly the polynomial modulo p.
+    * @return the coefficients as BigIntegers.
+    */
+   private static BigInteger[] toBig(long[] poly) {
+      BigInteger[] big = new BigInteger[poly.length];
+      for(int i = 0; i < poly.length; i++)
+         big[i] = BigInteger.valueOf(poly[i]);
+      return big;
+   }
+
+   /**
+    * Adds two polynomials modulo m.
+    * @param a one of the polynomials.
+    * @param b the other polynomial.
+    * @param mod the modulus.
+    * @return the sum of the polynomials.
+    */
+   private static BigInteger[] add(BigInteger[] a, BigInteger[] b, BigInteger mod) {
+      BigInteger[] sum = new BigInteger[Math.max(a.length, b.length)];
+      for(int i = 0; i < sum.length; i++) {
+         BigInteger coeff = i < a.length ? a[i] : BigInteger.ZERO;
+         sum[i] = (i < b.length ? coeff.add(b[i]) : coeff).mod(mod);
+      }
+      return trim(sum);
+   }
+
+   /**
+    * Subtracts one polynomial from another modulo m.
+    * @param a the polynomial being subtracted from.
+    * @param b the polynomial being subtracted.
+    * @param mod the modulus.
+    * @return the difference a - b.
+    */
+   private static BigInteger[] subtract(BigInteger[] a, BigInteger[] b, BigInteger mod) {
+      BigInteger[] diff = new BigInteger[Math.max(a.length, b.length)];
+      for(int i = 0; i < diff.length; i++) {
+         BigInteger coeff = i < a.length ? a[i] : BigInteger.ZERO;
+         diff[i] = (i < b.length ? coeff.subtract(b[i]) : coeff).mod(mod);
+      }
+      return trim(diff);
+   }
+
+   /**
+    * Multiplies two polynomials modulo m.
+    * @param a one of the polynomials.
+    * @param b the other polynomial.
+    * @param mod the modulus.
+    * @return the product of the polynomials.
+    */
+   private static BigInteger[] multiply(BigInteger[] a, BigInteger[] b, BigInteger mod) {
+      if(a.length == 0 || b.length == 0)
+         return new BigInteger[0];
+      BigInteger[] product = new BigInteger[a.length + b.length - 1];
+      Arrays.fill(product, BigInteger.ZERO);
+      for(int i = 0; i < a.length; i++)
+         for(int j = 0; j < b.length; j++)
+            product[i + j] = product[i + j].add(a[i].multiply(b[j]));
+      for(int i = 0; i < product.length; i++)
+         product[i] = product[i].mod(mod);
+      return trim(product);
+   }
+
+   /**
+    * Multiplies a polynomial by a constant modulo m.
+    * @param poly the polynomial.
+    * @param scalar the constant.
+    * @param mod the modulus.
+    * @return the scaled polynomial.
+    */
+   private static BigInteger[] scaleMod(BigInteger[] poly, BigInteger scalar, BigInteger mod) {
+      BigInteger[] scaled = new BigInteger[poly.length];
+      for(int i = 0; i < poly.length; i++)
+         scaled[i] = poly[i].multiply(scalar).mod(mod);
+      return trim(scaled);
+   }
+
+   /**
+    * Divides one polynomial by a monic polynomial modulo m.
+    * @param a the dividend.
+    * @param b the monic divisor.
+    * @param mod the modulus.
+    * @return an array of the quotient and the remainder.
+    */
+   private static BigInteger[][] divideMonic(BigInteger[] a, BigInteger[] b, BigInteger mod) {
+      if(a.length < b.length)
+         return new BigInteger[][] {new BigInteger[0], a};
+      BigInteger[] rem = a.clone();
+      BigInteger[] quot = new BigInteger[a.length - b.length + 1];
+      // only the leading coefficient is reduced at each step, and the remainder at the end
+      for(int i = quot.length - 1; i >= 0; i--) {
+         quot[i] = rem[i + b.length - 1].mod(mod);
+         if(quot[i].signum() != 0)
+            for(int j = 0; j < b.length - 1; j++)
+               rem[i + j] = rem[i + j].subtract(quot[i].multiply(b[j]));
+      }
+      BigInteger[] remainder = new BigInteger[b.length - 1];
+      for(int i = 0; i < remainder.length; i++)
+         remainder[i] = rem[i].mod(mod);
+      return new BigInteger[][] {trim(quot), trim(remainder)};
+   }
+
+   /**
+    * Removes the zero coefficients of the highest powers from the given coefficients.
+    * @param coeffs the coefficients indexed by power.
+    * @return the coefficients without trailing zeroes (the same array if there were none).
+    */
+   private static BigInteger[] trim(BigInteger[] coeffs) {
+      int length = coeffs.length;
+      while(length > 0 && coeffs[length - 1].signum() == 0)
+         length--;
+      return length == coeffs.length ? coeffs : Arrays.copyOf(coeffs, length);
+   }
+}
@@ -1,19 +1,31 @@
 package version3.factoring;
 
 import version3.utilities.Expression;
-import version3.utilities.Term;
 import version3.utilities.Fraction;
 import version3.utilities.Functions;
+import version3.utilities.ModularRootFilter;
+import version3.utilities.Polynomial;
+import version3.utilities.RationalCandidates;
+import version3.utilities.RootBounds;
+import version3.utilities.SparsePolynomial;
 
 import java.util.*;
 import java.math.BigInteger;
-import java.util.stream.Collectors;
 
 /**
- * Class utilized to factor a polynomial expression using synthetic division.
+ * Class utilized to factor a polynomial expression using synthetic division, and
+ * modular methods for its factors without rational roots.
  * @author Nathan Harbison
  */
 public class FactoringPolynomials {
+   /**
+    * The number of powers per non-zero term at and above which a polynomial is factored
+    * sparsely, without storing a coefficient for every power.
+    */
+   private static final int SPARSE_RATIO = 8;
+   /** The largest degree of polynomials factored modularly when they have no rational roots. */
+   private static final int MODULAR_MAX_DEGREE = 256;
+
    /**
     * Factors a given polynomial expression.
     * @param exp the expression to be factored.
@@ -25,167 +37,282 @@ public class FactoringPolynomials {
       if(allVars.size() != 1)
          throw new IllegalArgumentException("Error: not a polynomial expression with one variable");
       char var = Functions.getItemFromSet(allVars);
+      SparsePolynomial poly = SparsePolynomial.fromExpression(exp, var);
+      if(poly.degree() >= SPARSE_RATIO * poly.nonZeroTerms() || poly.constantCoeff().signum() == 0)
+         return factor(poly, var, List.of());
 
-      exp.addZeroes();
+      // split the polynomial into square-free parts first, so that repeated factors are
+      // searched for once (only if primitive with a positive leading coefficient, so that
+      // the parts multiply back to the polynomial exactly)
+      Polynomial dense = poly.toDense();
+      if(!dense.content().equals(BigInteger.ONE))
+         return factor(poly, var, List.of());
+      List<Polynomial> parts = dense.squareFreeDecomposition();
+      if(parts.size() <= 1)
+         return factor(poly, var, List.of());
 
-      if(exp.size() <= 2) {
-         exp.removeZeroes();
-         return new ArrayList<>(List.of(exp));
+      List<Expression> factored = new ArrayList<>();
+      for(int multiplicity = parts.size(); multiplicity >= 1; multiplicity--) {
+         Polynomial part = parts.get(multiplicity - 1);
+         if(part.degree() < 1)
+            continue;
+         List<Expression> partFactors = factor(SparsePolynomial.fromDense(part), var, List.of());
+         for(int i = 0; i < multiplicity; i++)
+            factored.addAll(partFactors);
       }
+      return factored;
+   }
 
-      // finds all possible rational roots of the polynomial
-      List<Fraction> posFactors = findRationalFact(exp.getCoeff(0), exp.getCoeff(exp.size() - 1));
-      for(Fraction posFactor : posFactors) {
-         // perform synthetic division on the factor
-         Optional<DivisionResult> resOpt = synDivide(exp, posFactor, var);
-         // check if remainder is 0
-         if(resOpt.isPresent() && resOpt.get().remainder().equals(new Expression())) {
-            Expression quotient = resOpt.get().quotient();
-            Expression factor = getLinExp(var, posFactor);
-
-            // determine if we can also pull out a sum/difference of cubes
-            // (i.e. if ax+b is a factor, see if a^3x^3+b^3 = (ax+b)(a^2x^2-abx+b^2x^2)
-            // is a factor too, by dividing out by a^2x^2-abx+b^2x^2)
-            List<BigInteger> coeffs = new ArrayList<>();
-            coeffs.add(posFactor.getDenom().multiply(posFactor.getDenom()));
-            coeffs.add(posFactor.getDenom().multiply(posFactor.getNum()));
-            coeffs.add(posFactor.getNum().multiply(posFactor.getNum()));
-            Expression possCube = new Expression(coeffs, var);
-            Optional<DivisionResult> cbResOpt = divide(quotient, possCube, var);
-
-            List<Expression> factored = new ArrayList<>();
-            factored.add(factor);
-            if (cbResOpt.isPresent() && cbResOpt.get().remainder().equals(new Expression())) {
-               factored.add(possCube);
-               Expression cbQuotient = cbResOpt.get().quotient();
-               if(!cbQuotient.equals(new Expression("1")))
-                  factored.addAll(factor(cbQuotient));
-            } else {
-               factored.addAll(factor(quotient));
-            }
-            return factored;
-         }
+   /**
+    * Factors a given polynomial f, first as a polynomial h in y = x^d for the largest useful d
+    * dividing all of its powers, which has a d times smaller degree, and then refining each
+    * factor of h with x^d substituted back in. For instance, x^12 - 5x^6 + 6 is factored as
+    * y^2 - 5y + 6 in y = x^6 first.
+    * @param poly the polynomial to be factored.
+    * @param var the variable of the polynomial.
+    * @param known the powers d for which the polynomial is already known not to factor
+    * further as a polynomial in x^d (nor, then, in any power of x^d).
+    * @return a list consisting of the factors of the polynomial, or just the
+    * given polynomial if unfactorable.
+    */
+   private static List<Expression> factor(SparsePolynomial poly, char var, List<Integer> known) {
+      int power = deflationPower(poly.exponentGcd(), known);
+      if(power == 1)
+         return factorUndeflated(poly, var);
+
+      // f(x) = h(x^d), where h is known not to factor in y^(k / gcd(k, d)) if f does not in x^k
+      List<Integer> deflatedKnown = new ArrayList<>();
+      for(int knownPower : known)
+         deflatedKnown.add(knownPower / (int) Functions.gcd(knownPower, power));
+      List<Expression> deflatedFactors = factor(poly.divideExponents(power), var, deflatedKnown);
+
+      // each factor of h, with x^d substituted back in, can no longer factor as a polynomial
+      // in x^d; if h did not factor, neither can f in any of the powers known before
+      List<Expression> factored = new ArrayList<>();
+      for(Expression factor : deflatedFactors) {
+         List<Integer> factorKnown = new ArrayList<>(List.of(power));
+         if(deflatedFactors.size() == 1)
+            factorKnown.addAll(known);
+         SparsePolynomial inflated = SparsePolynomial.fromExpression(factor, var).multiplyExponents(power);
+         factored.addAll(factor(inflated, var, factorKnown));
       }
+      return factored;
+   }
 
-      if(exp.nonZeroTerms() == 3 && Functions.isPowerOf2(exp.getPower(0, var))) {
-         exp.removeZeroes();
-         if(Functions.canBeQuadFactored(exp))
-            return FactoringQuadratics.factor(exp);
-      } else if(exp.getPower(0, var) == 4)
-         return FactoringQuartics.factor(exp);
-      else
-         exp.removeZeroes();
+   /**
+    * Factors a given polynomial without substituting for a power of its variable,
+    * choosing its sparse or dense representation by its fraction of non-zero terms.
+    * @param poly the polynomial to be factored.
+    * @param var the variable of the polynomial.
+    * @return a list consisting of the factors of the polynomial, or just the
+    * given polynomial if unfactorable.
+    */
+   private static List<Expression> factorUndeflated(SparsePolynomial poly, char var) {
+      if(poly.degree() < SPARSE_RATIO * poly.nonZeroTerms())
+         return factor(poly.toDense(), var);
+      return factor(poly, var);
+   }
+
+   /**
+    * Factors a given sparse polynomial, screening its possible rational roots over its
+    * non-zero terms only, and converting its factors to expressions in the given variable.
+    * Only once a root is found is the (generally dense) quotient built.
+    * @param poly the polynomial to be factored, of degree at least 1.
+    * @param var the variable of the polynomial.
+    * @return a list consisting of the factors of the polynomial, or just the
+    * given polynomial if unfactorable.
+    */
+   private static List<Expression> factor(SparsePolynomial poly, char var) {
+      if(poly.degree() <= 1)
+         return new ArrayList<>(List.of(poly.toExpression(var)));
+
+      int[] powers = poly.getPowers();
+      BigInteger[] coeffs = poly.getCoeffs();
+      RootBounds bounds = new RootBounds(powers, coeffs);
+      // try the integer candidates first, since q^n is free to compute for them, and the
+      // powers of q dominate the cost of evaluating a lacunary polynomial of large degree
+      Iterator<Fraction> posFactors = findRationalFact(poly.leadingCoeff(), poly.constantCoeff(), bounds,
+            RationalCandidates.Order.DENOMINATOR);
+      ModularRootFilter filter = new ModularRootFilter(powers, coeffs);
+      while(posFactors.hasNext()) {
+         Fraction posFactor = posFactors.next();
+         BigInteger p = posFactor.getNum(), q = posFactor.getDenom();
+         if(!filter.mayBeRoot(p, q) || !poly.isRoot(p, q))
+            continue;
+         Optional<Polynomial> quotOpt = poly.deflate(posFactor);
+         if(quotOpt.isPresent())
+            return factorAtRoot(quotOpt.get(), posFactor, var);
+      }
 
+      Expression exp = poly.toExpression(var);
+      if(poly.nonZeroTerms() == 3 && poly.degree() % 4 == 0 && Functions.canBeQuadFactored(exp)) {
+         List<Expression> factored = FactoringQuadratics.factor(exp);
+         if(factored.size() > 1)
+            return factored;
+      }
+      if(poly.degree() <= MODULAR_MAX_DEGREE)
+         return factorModularly(poly.toDense(), var);
       return new ArrayList<>(List.of(exp));
    }
 
    /**
-    * Finds all possible rational factors of the polynomial in the form of p/q, where
-    * p is a factor of the coefficient of last term in the polynomial, and q is
-    * the factor of the coefficient of the first term in the polynomial.
-    * @param firstCoeff the coefficient of the first term in the polynomial.
-    * @param lastCoeff the coefficient of the last term in the polynomial.
-    * @return a list of all possible rational factors of the function.
+    * Factors a given polynomial, converting its factors to expressions in the given variable.
+    * @param poly the polynomial to be factored, of degree at least 1.
+    * @param var the variable of the polynomial.
+    * @return a list consisting of the factors of the polynomial, or just the
+    * given polynomial if unfactorable.
     */
-   public static List<Fraction> findRationalFact(BigInteger firstCoeff, BigInteger lastCoeff)
-   {
-      List<BigInteger> firstFactors = Functions.findFactors(firstCoeff.abs());
-      List<BigInteger> lastFactors = Functions.findFactors(lastCoeff.abs());
-      Set<Fraction> factors = new HashSet<>();
-      for(BigInteger firstFactor : firstFactors)
-         for(BigInteger lastFactor : lastFactors) {
-            factors.add(new Fraction(lastFactor, firstFactor));
-            factors.add(new Fraction(lastFactor.negate(), firstFactor));
+   private static List<Expression> factor(Polynomial poly, char var) {
+      if(poly.degree() <= 1)
+         return new ArrayList<>(List.of(poly.toExpression(var)));
+
+      // lazily generate all possible rational roots of the polynomial, discarding any
+      // that lie outside the bounds on where its roots can be
+      BigInteger[] coeffs = poly.getDescendingCoeffs();
+      RootBounds bounds = new RootBounds(coeffs);
+      Iterator<Fraction> posFactors = findRationalFact(poly.leadingCoeff(), poly.constantCoeff(), bounds);
+      ModularRootFilter filter = new ModularRootFilter(coeffs);
+      while(posFactors.hasNext()) {
+         Fraction posFactor = posFactors.next();
+         // quickly reject the factor if it is not a root (first modulo a few primes, then
+         // exactly), before building the quotient
+         BigInteger p = posFactor.getNum(), q = posFactor.getDenom();
+         if(!filter.mayBeRoot(p, q) || !poly.isRoot(p, q))
+            continue;
+         // perform synthetic division on the factor
+         Optional<Polynomial> quotOpt = poly.deflate(posFactor);
+         if(quotOpt.isPresent())
+            return factorAtRoot(quotOpt.get(), posFactor, var);
+      }
+
+      if(poly.nonZeroTerms() == 3 && poly.degree() % 4 == 0) {
+         Expression exp = poly.toExpression(var);
+         if(Functions.canBeQuadFactored(exp)) {
+            List<Expression> factored = FactoringQuadratics.factor(exp);
+            if(factored.size() > 1)
+               return factored;
          }
-      return new ArrayList<>(factors);
+      } else if(poly.degree() == 4) {
+         List<Polynomial> factors = FactoringQuartics.factor(poly);
+         if(factors.size() > 1)
+            return toExpressions(factors, var);
+      }
+      return factorModularly(poly, var);
    }
 
    /**
-    * Divides the expression by the given rational factor p/q using synthetic
-    * division (i.e. division the expression by qx-p). Returns the quotient and
-    * remainder, or nothing if the result has fractional coefficients.
-    * @param exp the expression to be divided.
-    * @param factor the factor of the expression.
-    * @param var the sole variable in the expression.
-    * @return the quotient and remainder of the synthetic division, or nothing
-    * if either result has fractional coefficients.
+    * Factors a given polynomial without rational roots modularly (see {@link FactoringModular}),
+    * if its degree allows it to have factors (all of which have degree at least 2).
+    * @param poly the polynomial to be factored, without rational roots.
+    * @param var the variable of the polynomial.
+    * @return a list consisting of the factors of the polynomial, or just the
+    * given polynomial if unfactorable.
     */
-   private static Optional<DivisionResult> synDivide(Expression exp, Fraction factor, char var) {
-      // divide out by x - p/q
-      List<Fraction> coeffs = new ArrayList<>();
-      coeffs.add(new Fraction(exp.getCoeff(0), BigInteger.ONE));
-      for(int i = 1; i < exp.size(); i++)
-         coeffs.add(factor.multiply(coeffs.get(i - 1)).add(new Fraction(exp.getCoeff(i))));
-      // divide quotient by q (so that we therefore divided in total by qx-p)
-      coeffs.replaceAll(coeff -> coeff.divide(factor.getDenom()));
-
-      boolean allWhole = coeffs.stream().allMatch(Fraction::isWhole);
-      if(!allWhole)
-         return Optional.empty();
-
-      List<BigInteger> coeffsInt = coeffs.stream().map(Fraction::getNum).toList();
-      Expression quotient = new Expression(coeffsInt.subList(0, coeffs.size() - 1), var);
-      Expression remainder = new Expression(List.of(coeffsInt.get(coeffs.size() - 1)), var);
-      return Optional.of(new DivisionResult(quotient, remainder));
+   private static List<Expression> factorModularly(Polynomial poly, char var) {
+      if(poly.degree() < 4 || poly.degree() > MODULAR_MAX_DEGREE)
+         return new ArrayList<>(List.of(poly.toExpression(var)));
+      return toExpressions(FactoringModular.factor(poly), var);
    }
 
    /**
-    * Divides a polynomial expression by another and returns the result.
-    * @param dividend the polynomial expression to be divided.
-    * @param divisor the polynomial dividing the dividend.
-    * @param var the variable in the polynomial.
-    * @return the result of the division, or nothing if the resulting
-    * polynomial has fractional coefficients.
+    * Converts the given polynomials to expressions in the given variable.
+    * @param polys the polynomials.
+    * @param var the variable of the expressions.
+    * @return a list of the expressions, in the same order.
     */
-   private static Optional<DivisionResult> divide(Expression dividend, Expression divisor, char var) {
-      List<Fraction> expCoeffs = dividend.getCoeffs().stream()
-              .map(Fraction::new).collect(Collectors.toList());
-      List<BigInteger> divCoeffs = divisor.getCoeffs();
-
-      // divide by the divisor (expCoeffs stores the dividends coefficients during the process)
-      List<Fraction> quotient = new ArrayList<>();
-      for(int i = 0; i < expCoeffs.size() - divCoeffs.size() + 1; i++) {
-         quotient.add(expCoeffs.get(i).divide(divCoeffs.get(0)));
-         for(int j = 0; j < divCoeffs.size(); j++)
-            expCoeffs.set(i + j, expCoeffs.get(i + j).subtract(quotient.get(i).multiply(new Fraction(divCoeffs.get(j)))));
-      }
+   private static List<Expression> toExpressions(List<Polynomial> polys, char var) {
+      List<Expression> exps = new ArrayList<>();
+      for(Polynomial poly : polys)
+         exps.add(poly.toExpression(var));
+      return exps;
+   }
 
-      // expCoeffs now has zeroes until quotient.size() - 1, inclusive
-      // afterwards is remaining coefficients, i.e. the remainder
+   /**
+    * Factors a polynomial given one of its rational roots p/q and its quotient by qx - p,
+    * also pulling out a sum/difference of cubes if possible.
+    * @param quotient the quotient of the polynomial by qx - p.
+    * @param root the rational root p/q.
+    * @param var the variable of the polynomial.
+    * @return a list consisting of the factors of the polynomial.
+    */
+   private static List<Expression> factorAtRoot(Polynomial quotient, Fraction root, char var) {
+      BigInteger p = root.getNum(), q = root.getDenom();
+      Polynomial factor = Polynomial.fromAscending(p.negate(), q);
 
-      boolean quotientWhole = quotient.stream().allMatch(Fraction::isWhole);
-      boolean remainderWhole = expCoeffs.stream().allMatch(Fraction::isWhole);
-      if(!quotientWhole || !remainderWhole)
-         return Optional.empty();
+      // determine if we can also pull out a sum/difference of cubes
+      // (i.e. if qx-p is a factor, see if q^3x^3-p^3 = (qx-p)(q^2x^2+pqx+p^2)
+      // is a factor too, by dividing out by q^2x^2+pqx+p^2)
+      Polynomial possCube = Polynomial.fromAscending(p.multiply(p), q.multiply(p), q.multiply(q));
+      Optional<Polynomial.DivisionResult> cbResOpt = quotient.divide(possCube);
 
-      List<BigInteger> quotInt = quotient.stream().map(Fraction::getNum).toList();
-      List<BigInteger> remInt = expCoeffs.subList(quotient.size(), expCoeffs.size())
-              .stream().map(Fraction::getNum).toList();
-      return Optional.of(new DivisionResult(new Expression(quotInt, var), new Expression(remInt, var)));
+      List<Expression> factored = new ArrayList<>();
+      factored.add(factor.toExpression(var));
+      if (cbResOpt.isPresent() && cbResOpt.get().remainder().isZero()) {
+         factored.add(possCube.toExpression(var));
+         Polynomial cbQuotient = cbResOpt.get().quotient();
+         if(!cbQuotient.equals(Polynomial.ONE))
+            factored.addAll(factor(cbQuotient, var));
+      } else {
+         factored.addAll(factor(quotient, var));
+      }
+      return factored;
    }
 
    /**
-    * Returns the binomial linear polynomial with the given rational
-    * number as its singular root.
-    * @param var the sole variable in the expression.
-    * @param root the root of the expression.
-    * @return the binomial linear expression.
+    * Finds the largest divisor d of the gcd of a polynomial's powers for which the polynomial
+    * is not yet known not to factor as a polynomial in x^d.
+    * @param gcd the gcd of the powers of the polynomial.
+    * @param known the powers d for which the polynomial is known not to factor in x^d.
+    * @return the largest such divisor, or 1 if there is none.
     */
-   private static Expression getLinExp(char var, Fraction root) {
-      Expression exp = new Expression();
-      Map<Character, Integer> varPow = new HashMap<>();
-      varPow.put(var, 1);
-      exp.addTerm(new Term(root.getDenom(), varPow));
-      exp.addTerm(new Term(root.getNum().negate(), new HashMap<>()));
-      return exp;
+   private static int deflationPower(int gcd, List<Integer> known) {
+      int best = 1;
+      for(int i = 1; (long) i * i <= gcd; i++) {
+         if(gcd % i != 0)
+            continue;
+         for(int divisor : new int[]{i, gcd / i}) {
+            if(divisor <= best)
+               continue;
+            boolean isKnown = false;
+            for(int knownPower : known)
+               isKnown |= divisor % knownPower == 0;
+            if(!isKnown)
+               best = divisor;
+         }
+      }
+      return best;
    }
 
+   /**
+    * Lazily finds all possible rational factors of the polynomial in the form of p/q, where
+    * p is a factor of the coefficient of last term in the polynomial, and q is
+    * the factor of the coefficient of the first term in the polynomial. The factors
+    * are generated by increasing height |p| + q, so the more common small roots come first,
+    * and those outside the given bounds on the polynomial's roots are skipped.
+    * @param firstCoeff the coefficient of the first term in the polynomial.
+    * @param lastCoeff the coefficient of the last term in the polynomial.
+    * @param bounds the bounds on the roots of the polynomial.
+    * @return an iterator over all possible rational factors of the function.
+    */
+   public static Iterator<Fraction> findRationalFact(BigInteger firstCoeff, BigInteger lastCoeff, RootBounds bounds)
+   {
+      return findRationalFact(firstCoeff, lastCoeff, bounds, RationalCandidates.Order.HEIGHT);
+   }
 
    /**
-    * Wrapper class that stores the result of expression division,
-    * i.e. the quotient and remainder.
-    * @param quotient  The quotient of the division.
-    * @param remainder The remainder of the division.
+    * Lazily finds all possible rational factors of the polynomial in the form of p/q, where
+    * p is a factor of the coefficient of last term in the polynomial, and q is
+    * the factor of the coefficient of the first term in the polynomial, in the given order.
+    * Those outside the given bounds on the polynomial's roots are skipped.
+    * @param firstCoeff the coefficient of the first term in the polynomial.
+    * @param lastCoeff the coefficient of the last term in the polynomial.
+    * @param bounds the bounds on the roots of the polynomial.
+    * @param order the order in which the factors are generated.
+    * @return an iterator over all possible rational factors of the function.
     */
-   private record DivisionResult(Expression quotient, Expression remainder) {}
-}
\ No newline at end of file
+   public static Iterator<Fraction> findRationalFact(BigInteger firstCoeff, BigInteger lastCoeff, RootBounds bounds,
+                                                     RationalCandidates.Order order)
+   {
+      return new RationalCandidates(firstCoeff, lastCoeff, order, bounds);
+   }
+}
@@ -72,8 +72,7 @@ public class FactoringQuadratics {
 
    /**
     * Factors special case of trinomial, where
-    * (ax^(2^n) + bx^(2^(n-1)) + c)(ax^(2^n) - bx^(2^(n-1)) + c) =
-    * (a^2x^(2^(n + 1)) + (2ac - b^2)x^(2^n) + c^2.
+    * (ax^(2k) + bx^k + c)(ax^(2k) - bx^k + c) = a^2x^(4k) + (2ac - b^2)x^(2k) + c^2.
     * @param exp the expression to be factored.
     * @return a list consisting of the factors of the expression, or just the
     * given expression if unfactorable.
@@ -81,7 +80,7 @@ public class FactoringQuadratics {
    public static List<Expression> factorSpecial(Expression exp) {
       Set<Character> allVars = exp.getAllVars();
       for(char var : allVars) {
-         if(!Functions.isPowerOf2(exp.getPower(0, var)) || exp.getPower(0, var) <= 2
+         if(exp.getPower(0, var) % 4 != 0 || exp.getPower(0, var) == 0
             || exp.getPower(0, var) / 2 != exp.getPower(1, var)) {
             return new ArrayList<>(List.of(exp));
          }
@@ -103,7 +102,7 @@ public class FactoringQuadratics {
             Expression exp2 = new Expression();
             BigInteger[] coefs1 = new BigInteger[]{a, b, c};
             BigInteger[] coefs2 = new BigInteger[]{a, b.negate(), c};
-            for (int i = 0; i < exp1.size(); i++) {
+            for (int i = 0; i < exp.size(); i++) {
                Term term = exp.getTerm(i);
 
                Map<Character, Integer> pows = new HashMap<>();
@@ -3,6 +3,8 @@ package version3.factoring;
 import version3.utilities.Expression;
 import version3.utilities.Fraction;
 import version3.utilities.Functions;
+import version3.utilities.MutableFraction;
+import version3.utilities.Polynomial;
 
 import java.util.*;
 import java.math.BigInteger;
@@ -26,16 +28,27 @@ public class FactoringQuartics {
          throw new IllegalArgumentException("Error: not a polynomial expression with one variable");
       char var = Functions.getItemFromSet(allVars);
 
-      exp.addZeroes();
+      List<Expression> factors = new ArrayList<>();
+      for(Polynomial factor : factor(Polynomial.fromExpression(exp, var)))
+         factors.add(factor.toExpression(var));
+      return factors;
+   }
 
-      if(exp.getPower(0, var) != 4)
+   /**
+    * Factors a given quartic polynomial into two unfactorable quadratics, if possible.
+    * @param poly the polynomial to be factored.
+    * @return a list consisting of the factors of the polynomial, or just the
+    * given polynomial if unfactorable.
+    */
+   public static List<Polynomial> factor(Polynomial poly) {
+      if(poly.degree() != 4)
          throw new IllegalArgumentException("Error: not a quartic polynomial.");
-      
+
       // convert quartic from form of f(x) = a'x^4 + b'x^3 + c'x^2 + d'x + e' -> g(x) = x^4 + cx^2 + dx + e
       // g(x) = f(x - b' / 4a') / a'
       Fraction[] coeffs = new Fraction[5];
-      for(int x = 0; x < exp.size(); x++)
-         coeffs[x] = new Fraction(exp.getCoeff(x), exp.getCoeff(0));
+      for(int x = 0; x < coeffs.length; x++)
+         coeffs[x] = new Fraction(poly.getCoeff(4 - x), poly.leadingCoeff());
 
       Fraction[] rCoeffs = new Fraction[4];
       rCoeffs[0] = coeffs[0];
@@ -57,14 +70,13 @@ public class FactoringQuartics {
       Optional<Fraction> sqFactor = findResolvSqFactor(resolvent);
       if(sqFactor.isPresent()) {
          List<List<Fraction>> quads = findQuadFactors(sqFactor.get(), rCoeffs, resolvent);
-         List<Expression> factors = new ArrayList<>();
+         List<Polynomial> factors = new ArrayList<>();
          for(List<Fraction> quad : quads)
-            factors.add(new Expression(transformBack(quad, coeffs), var));
+            factors.add(Polynomial.fromDescending(transformBack(quad, coeffs)));
          return factors;
       }
-      
-      exp.removeZeroes();
-      return new ArrayList<>(List.of(exp));
+
+      return new ArrayList<>(List.of(poly));
    }
 
    /**
@@ -80,14 +92,15 @@ public class FactoringQuartics {
 
       List<BigInteger> firstFactors = Functions.findFactors(Functions.nthRoot(firstCoeff, 2));
       List<BigInteger> lastFactors = Functions.findFactors(Functions.nthRoot(lastCoeff, 2));
+      MutableFraction eval = new MutableFraction();
       for(BigInteger firstFactor : firstFactors)
          for(BigInteger lastFactor : lastFactors) {
             Fraction sqFactor = new Fraction(lastFactor.pow(2), firstFactor.pow(2));
-            Fraction eval = sqFactor.pow(3).multiply(resolvent[0])
-                              .add(sqFactor.pow(2).multiply(resolvent[1]))
-                              .add(sqFactor.multiply(resolvent[2]))
-                              .add(resolvent[3]);
-            if(eval.compareTo(Fraction.ZERO) == 0)
+            // evaluate the resolvent at the possible root via Horner's method
+            eval.set(resolvent[0]);
+            for(int i = 1; i < resolvent.length; i++)
+               eval.mulAdd(sqFactor, resolvent[i]);
+            if(eval.isZero())
                return Optional.of(sqFactor);
          }
       return Optional.empty();
@@ -75,8 +75,11 @@ public class Factoring {
 
       List<Expression> factoredExp = List.of(exp);
       if (exp.size() == 3 && Functions.canBeQuadFactored(exp)) {
-         // factor as a quadratic
+         // factor as a quadratic, or as a polynomial if it has one variable and does
+         // not split as a quadratic (e.g. x^10 + x^5 + 1, which has the factor x^2 + x + 1)
          factoredExp = FactoringQuadratics.factor(exp);
+         if (factoredExp.size() == 1 && exp.getAllVars().size() == 1)
+            factoredExp = FactoringPolynomials.factor(exp);
       } else if (exp.size() == 2) {
          // factor as a binomial
          factoredExp = FactoringBinomials.factor(exp);
@@ -0,0 +1,261 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.IntStream;
+
+/**
+ * Class implementing Lenstra's elliptic curve method (ECM) for finding a divisor of a
+ * composite integer, which is effective when the integer has a prime factor of medium
+ * size (roughly 15 to 35 digits) that Pollard's rho algorithm is too slow to find.
+ * Arithmetic is done on Montgomery curves By^2 = x^3 + Ax^2 + x with x and z coordinates
+ * only, chosen via Suyama's parametrization. Each curve runs a first stage multiplying a
+ * point by all prime powers up to a bound B1, and a second stage testing each prime in
+ * (B1, B2] with a baby-step giant-step continuation. Curves are run in parallel, and all
+ * stop once any curve finds a divisor.
+ * @author Nathan Harbison
+ */
+public class EllipticCurveMethod {
+   /**
+    * The stage one bound B1 and the number of curves run at each level of effort, each
+    * level being suited to finding prime factors of about 15, 20, 25, 30 and 35 digits.
+    */
+   private static final int[][] LEVELS = {{2000, 25}, {11000, 90}, {50000, 300}, {250000, 700}, {1000000, 1800}};
+   /** The number of digits of the smallest prime factor targeted by the first level of effort. */
+   public static final int FIRST_LEVEL_DIGITS = 15;
+   /** The ratio of the stage two bound B2 to the stage one bound B1. */
+   private static final int STAGE_TWO_RATIO = 100;
+   /** The giant step size used in stage two. */
+   private static final int GIANT_STEP = 210;
+   /** The number of primes processed in stage one between checks for cancellation. */
+   private static final int CANCEL_CHECK_INTERVAL = 64;
+
+   /**
+    * Attempts to find a nontrivial divisor of the given odd composite integer, trying
+    * successively higher levels of effort up to the level suited to prime factors with
+    * the given number of digits.
+    * @param num the composite integer to be split.
+    * @param maxDigits the number of digits of the largest prime factor targeted.
+    * @return a divisor of the integer strictly between 1 and the integer, or nothing if
+    * none was found.
+    */
+   public static Optional<BigInteger> findDivisor(BigInteger num, int maxDigits) {
+      for(int level = 0; level < LEVELS.length; level++) {
+         if(FIRST_LEVEL_DIGITS + 5 * level > maxDigits)
+            break;
+         Optional<BigInteger> divisor = findDivisor(num, LEVELS[level][0], LEVELS[level][1], level * 10000L);
+         if(divisor.isPresent())
+            return divisor;
+      }
+      return Optional.empty();
+   }
+
+   /**
+    * Attempts to find a nontrivial divisor of the given odd composite integer by running up
+    * to the given number of curves, in parallel across the available processors.
+    * @param num the composite integer to be split.
+    * @param bound1 the stage one bound B1.
+    * @param curves the maximum number of curves to run.
+    * @param firstCurve the index of the first curve, used to choose distinct curves.
+    * @return a divisor of the integer strictly between 1 and the integer, or nothing if
+    * none was found.
+    */
+   public static Optional<BigInteger> findDivisor(BigInteger num, int bound1, int curves, long firstCurve) {
+      int bound2 = bound1 * STAGE_TWO_RATIO;
+      int[] primes = PrimeSieve.primesUpTo(bound1);
+      AtomicReference<BigInteger> found = new AtomicReference<>();
+      AtomicInteger nextCurve = new AtomicInteger();
+
+      int workers = Math.min(curves, Runtime.getRuntime().availableProcessors());
+      IntStream.range(0, workers).parallel().forEach(worker -> {
+         for(int curve = nextCurve.getAndIncrement(); curve < curves && found.get() == null;
+             curve = nextCurve.getAndIncrement()) {
+            Optional<BigInteger> divisor = new Curve(num, firstCurve + curve + 6, found).run(primes, bound1, bound2);
+            divisor.ifPresent(div -> found.compareAndSet(null, div));
+         }
+      });
+      return Optional.ofNullable(found.get());
+   }
+
+   /**
+    * Class representing a single Montgomery curve modulo the integer being split, along
+    * with a point on it, represented by its x and z coordinates.
+    */
+   private static class Curve {
+      /** The integer being split. */
+      private final BigInteger num;
+      /** The curve constant (A + 2) / 4, reduced modulo num. */
+      private BigInteger a24;
+      /** The initial point on the curve. */
+      private BigInteger x0, z0;
+      /** A divisor found while setting up the curve, if any. */
+      private BigInteger setupDivisor;
+      /** The shared divisor found by any curve, checked to stop early. */
+      private final AtomicReference<BigInteger> found;
+
+      /**
+       * Instantiates the curve given by Suyama's parametrization with the given parameter,
+       * which has a group order divisible by 12.
+       * @param num the integer being split.
+       * @param sigma the parameter of the curve, at least 6.
+       * @param found the shared divisor found by any curve.
+       */
+      private Curve(BigInteger num, long sigma, AtomicReference<BigInteger> found) {
+         this.num = num;
+         this.found = found;
+
+         // u = sigma^2 - 5, v = 4 * sigma, x0 = u^3, z0 = v^3
+         // (A + 2) / 4 = (v - u)^3 * (3u + v) / (16 * u^3 * v)
+         BigInteger bigSigma = BigInteger.valueOf(sigma);
+         BigInteger u = bigSigma.multiply(bigSigma).subtract(BigInteger.valueOf(5)).mod(num);
+         BigInteger v = bigSigma.shiftLeft(2).mod(num);
+         this.x0 = u.pow(3).mod(num);
+         this.z0 = v.pow(3).mod(num);
+         BigInteger numer = v.subtract(u).pow(3).multiply(u.multiply(BigInteger.valueOf(3)).add(v)).mod(num);
+         BigInteger denom = this.x0.multiply(v).shiftLeft(4).mod(num);
+         BigInteger gcd = denom.gcd(num);
+         if(!gcd.equals(BigInteger.ONE)) {
+            if(!gcd.equals(num))
+               this.setupDivisor = gcd;
+            this.a24 = null;
+            return;
+         }
+         this.a24 = numer.multiply(denom.modInverse(num)).mod(num);
+      }
+
+      /**
+       * Runs both stages of the method on this curve.
+       * @param primes the primes up to B1.
+       * @param bound1 the stage one bound B1.
+       * @param bound2 the stage two bound B2.
+       * @return a divisor of the integer strictly between 1 and the integer, or nothing
+       * if none was found.
+       */
+      private Optional<BigInteger> run(int[] primes, int bound1, int bound2) {
+         if(this.a24 == null)
+            return Optional.ofNullable(this.setupDivisor);
+
+         // stage one: multiply the point by every prime power up to B1
+         BigInteger[] point = {this.x0, this.z0};
+         for(int i = 0; i < primes.length; i++) {
+            long primePow = primes[i];
+            while(primePow * primes[i] <= bound1)
+               primePow *= primes[i];
+            point = multiply(point, primePow);
+            if(i % CANCEL_CHECK_INTERVAL == 0 && this.found.get() != null)
+               return Optional.empty();
+         }
+         BigInteger gcd = point[1].gcd(this.num);
+         if(gcd.equals(this.num))
+            return Optional.empty();
+         if(!gcd.equals(BigInteger.ONE))
+            return Optional.of(gcd);
+
+         return stageTwo(point, bound1, bound2);
+      }
+
+      /**
+       * Runs the second stage of the method, which finds a divisor if the order of the
+       * point modulo a prime factor is a single prime q in (B1, B2]. Each such q is written
+       * as mD + j or mD - j for the giant step D and some j coprime to D, and the product of
+       * x(mDQ) * z(jQ) - x(jQ) * z(mDQ) over all such q shares the prime factor with num.
+       * @param point the point after stage one.
+       * @param bound1 the stage one bound B1.
+       * @param bound2 the stage two bound B2.
+       * @return a divisor of the integer strictly between 1 and the integer, or nothing
+       * if none was found.
+       */
+      private Optional<BigInteger> stageTwo(BigInteger[] point, int bound1, int bound2) {
+         // baby steps: jQ for each odd j < D / 2 (stored at index j)
+         BigInteger[][] babySteps = new BigInteger[GIANT_STEP / 2][];
+         BigInteger[] doubled = doublePoint(point);
+         babySteps[1] = point;
+         babySteps[3] = add(doubled, point, point);
+         for(int j = 5; j < GIANT_STEP / 2; j += 2)
+            babySteps[j] = add(babySteps[j - 2], doubled, babySteps[j - 4]);
+
+         // giant steps: mDQ, starting with the largest multiple of D below B1
+         BigInteger[] giantStep = multiply(point, GIANT_STEP);
+         long firstMult = Math.max(bound1 / GIANT_STEP, 1);
+         BigInteger[] prevGiant = firstMult == 1 ? null : multiply(point, (firstMult - 1) * GIANT_STEP);
+         BigInteger[] giant = multiply(point, firstMult * GIANT_STEP);
+         BigInteger prod = BigInteger.ONE;
+         for(long mult = firstMult; mult * GIANT_STEP - GIANT_STEP / 2 <= bound2; mult++) {
+            for(int j = 1; j < GIANT_STEP / 2; j += 2) {
+               long center = mult * GIANT_STEP;
+               boolean plusPrime = center + j > bound1 && center + j <= bound2 && PrimeSieve.isPrime((int) (center + j));
+               boolean minusPrime = center - j > bound1 && center - j <= bound2 && PrimeSieve.isPrime((int) (center - j));
+               if(plusPrime || minusPrime) {
+                  BigInteger[] baby = babySteps[j];
+                  BigInteger diff = giant[0].multiply(baby[1]).subtract(baby[0].multiply(giant[1]));
+                  prod = prod.multiply(diff).mod(this.num);
+               }
+            }
+            if(this.found.get() != null)
+               return Optional.empty();
+
+            BigInteger[] nextGiant = prevGiant == null ? doublePoint(giant) : add(giant, giantStep, prevGiant);
+            prevGiant = giant;
+            giant = nextGiant;
+         }
+
+         BigInteger gcd = prod.gcd(this.num);
+         if(gcd.equals(BigInteger.ONE) || gcd.equals(this.num))
+            return Optional.empty();
+         return Optional.of(gcd);
+      }
+
+      /**
+       * Multiplies the given point by a positive integer via the Montgomery ladder.
+       * @param point the point to be multiplied.
+       * @param mult the positive integer multiplier.
+       * @return the point multiplied by the given integer.
+       */
+      private BigInteger[] multiply(BigInteger[] point, long mult) {
+         if(mult == 1)
+            return point;
+         BigInteger[] low = point, high = doublePoint(point);
+         for(int bit = 62 - Long.numberOfLeadingZeros(mult); bit >= 0; bit--) {
+            if(((mult >> bit) & 1) == 1) {
+               low = add(high, low, point);
+               high = doublePoint(high);
+            } else {
+               high = add(low, high, point);
+               low = doublePoint(low);
+            }
+         }
+         return low;
+      }
+
+      /**
+       * Doubles the given point on the curve.
+       * @param point the point to be doubled.
+       * @return twice the given point.
+       */
+      private BigInteger[] doublePoint(BigInteger[] point) {
+         BigInteger sum = point[0].add(point[1]), diff = point[0].subtract(point[1]);
+         BigInteger sumSq = sum.multiply(sum).mod(this.num), diffSq = diff.multiply(diff).mod(this.num);
+         BigInteger sqDiff = sumSq.subtract(diffSq);
+         BigInteger x = sumSq.multiply(diffSq).mod(this.num);
+         BigInteger z = sqDiff.multiply(diffSq.add(this.a24.multiply(sqDiff))).mod(this.num);
+         return new BigInteger[]{x, z};
+      }
+
+      /**
+       * Adds two points on the curve, given their difference.
+       * @param point1 the first point to be added.
+       * @param point2 the second point to be added.
+       * @param diff the difference of the two points.
+       * @return the sum of the two points.
+       */
+      private BigInteger[] add(BigInteger[] point1, BigInteger[] point2, BigInteger[] diff) {
+         BigInteger u = point1[0].subtract(point1[1]).multiply(point2[0].add(point2[1])).mod(this.num);
+         BigInteger v = point1[0].add(point1[1]).multiply(point2[0].subtract(point2[1])).mod(this.num);
+         BigInteger sum = u.add(v), difference = u.subtract(v);
+         BigInteger x = diff[1].multiply(sum.multiply(sum).mod(this.num)).mod(this.num);
+         BigInteger z = diff[0].multiply(difference.multiply(difference).mod(this.num)).mod(this.num);
+         return new BigInteger[]{x, z};
+      }
+   }
+}
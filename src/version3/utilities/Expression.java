@@ -2,7 +2,6 @@ package version3.utilities;
 
 import java.util.*;
 import java.math.BigInteger;
-import java.util.stream.Collectors;
 
 /**
  * Class representing a mathematical expression consisting of added terms, each
@@ -12,6 +11,13 @@ import java.util.stream.Collectors;
 public class Expression {
    /** A list of terms representing a given expression. */
    private List<Term> terms;
+   /**
+    * The non-zero terms of the expression in sorted order, as a canonical form for equality,
+    * or null if the expression has changed since it was last computed.
+    */
+   private Term[] canonical;
+   /** The hash code of the canonical form, when it is computed. */
+   private int canonicalHash;
 
    // ---------------------------------------------------------------------------------------
    // Constructors
@@ -87,22 +93,24 @@ public class Expression {
    // Modifiers
 
    /**
-    * Adds a term to the end of expression, with a given
+    * Adds a copy of a term to the end of expression, with a given
     * coefficient and variables.
     * @param term the term to be added.
     */
    public void addTerm(Term term) {
-      this.terms.add(term);
+      this.canonical = null;
+      this.terms.add(new Term(term));
    }
 
    /**
-    * Adds a term to the expression at the specified index
+    * Adds a copy of a term to the expression at the specified index
     * in the ordered list of the expression's terms.
     * @param ind the index where the term is to be added.
     * @param term the term to be added.
     */
    public void addTerm(int ind, Term term) {
-      this.terms.add(ind, term);
+      this.canonical = null;
+      this.terms.add(ind, new Term(term));
    }
 
    /**
@@ -113,6 +121,7 @@ public class Expression {
     * @param scalar modifying scalar of the variables' powers.
     */
    public void addReducedTerm(BigInteger coeff, Map<Character, Integer> vars, Fraction scalar) {
+      this.canonical = null;
       Map<Character, Integer> modVars = new HashMap<>(vars);
       for(char var : modVars.keySet()) {
          int power = modVars.get(var);
@@ -131,6 +140,7 @@ public class Expression {
     * @param scalar modifying scalar of the variables' powers.
     */
    public void addReducedTerm(int ind, BigInteger coeff, Map<Character, Integer> vars, Fraction scalar) {
+      this.canonical = null;
       Map<Character, Integer> modVars = new HashMap<>(vars);
       for(char var : modVars.keySet()) {
          int power = modVars.get(var);
@@ -146,6 +156,7 @@ public class Expression {
     * @return the removed term.
     */
    public Term removeTerm(int ind) {
+      this.canonical = null;
       return this.terms.remove(ind);
    }
 
@@ -154,6 +165,7 @@ public class Expression {
     * @param scalar the scalar multiplier of the expression.
     */
    public void multiply(int scalar) {
+      this.canonical = null;
       for(Term term : this.terms)
          term.setCoeff(term.getCoeff().multiply(BigInteger.valueOf(scalar)));
    }
@@ -294,12 +306,7 @@ public class Expression {
     * @return a map mapping variables to their respective powers for the desired term.
     */
    public Map<Character, Integer> getVarPowers(int ind) {
-      Term term = this.terms.get(ind);
-      Map<Character, Integer> powers = new HashMap<>();
-      for(char var : term.getVariables()) {
-         powers.put(var, term.getPower(var));
-      }
-      return powers;
+      return this.terms.get(ind).getMonomial().toMap();
    }
 
    /**
@@ -320,6 +327,7 @@ public class Expression {
     * @throws IllegalStateException if the expression is empty.
     */
    public Term getFactor() {
+      this.canonical = null;
       if(this.terms.size() == 0)
          throw new IllegalStateException("Error: cannot factor an empty expression.");
 
@@ -392,23 +400,20 @@ public class Expression {
       if(this == obj)
          return true;
       if(obj instanceof Expression otherExp) {
-         Set<Term> termsNoOrder1 = this.terms.stream()
-                 .filter(term -> !term.getCoeff().equals(BigInteger.ZERO)).collect(Collectors.toSet());
-         Set<Term> termsNoOrder2 = otherExp.terms.stream()
-                 .filter(term -> !term.getCoeff().equals(BigInteger.ZERO)).collect(Collectors.toSet());
-         return termsNoOrder1.equals(termsNoOrder2);
+         Term[] terms1 = this.canonical(), terms2 = otherExp.canonical();
+         return this.canonicalHash == otherExp.canonicalHash && Arrays.equals(terms1, terms2);
       }
       return false;
    }
 
    /**
-    * Hashes the given expression.
+    * Hashes the given expression, ignoring order and terms with coefficients of 0.
     * @return a hash code for the given expression.
     */
    @Override
    public int hashCode() {
-      Set<Term> termsNoOrder = new HashSet<>(this.terms);
-      return Objects.hash(termsNoOrder);
+      this.canonical();
+      return this.canonicalHash;
    }
 
    /**
@@ -427,4 +432,22 @@ public class Expression {
       }
       return builder.toString();
    }
-}
\ No newline at end of file
+
+   // ---------------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Returns the canonical form of the expression, its non-zero terms in sorted order,
+    * computing it (and its hash code) if the expression has changed since it was last computed.
+    * @return the canonical form of the expression.
+    */
+   private Term[] canonical() {
+      if(this.canonical == null) {
+         Term[] sorted = this.terms.stream().filter(term -> term.getCoeff().signum() != 0).toArray(Term[]::new);
+         Arrays.sort(sorted);
+         this.canonicalHash = Arrays.hashCode(sorted);
+         this.canonical = sorted;
+      }
+      return this.canonical;
+   }
+}
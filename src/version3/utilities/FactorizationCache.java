@@ -0,0 +1,259 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Class representing a bounded, thread-safe cache of the prime factorizations of integers,
+ * so that integers factored repeatedly (such as the same coefficients throughout a recursive
+ * factorization) are only factored once. Entries are weighted by their approximate size in
+ * memory, and the total weight is kept under a fixed capacity. Eviction follows the TinyLFU
+ * policy: the frequency of every integer looked up is estimated by a count-min sketch, and
+ * a newly factored integer is only admitted if it is looked up more often than the oldest
+ * entry it would evict, so that a burst of one-off integers cannot flush out frequently
+ * used ones. Lookups never lock; only admission and eviction do.
+ * @author Nathan Harbison
+ */
+public class FactorizationCache {
+   /** The number of counters in the frequency sketch per unit of capacity. */
+   private static final int COUNTERS_PER_WEIGHT = 2;
+   /** The number of lookups per unit of capacity after which all frequencies are halved. */
+   private static final int AGING_PERIOD = 10;
+   /** The maximum value of a frequency counter, which are 4 bits each. */
+   private static final int MAX_COUNT = 15;
+   /** The seeds of the hash functions for each row of the frequency sketch. */
+   private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+   /** The cached factorizations, by integer. */
+   private final ConcurrentMap<BigInteger, Entry> entries;
+   /** The cached integers in order of admission, from which eviction victims are taken. */
+   private final Queue<BigInteger> admissionOrder;
+   /** The maximum total weight of the cached factorizations. */
+   private final long capacity;
+   /** The current total weight of the cached factorizations. */
+   private long weight;
+
+   /** The frequency sketch: 4 rows of 4-bit counters, 16 to a long. */
+   private final AtomicLongArray sketch;
+   /** The number of counters in each row of the sketch, a power of 2. */
+   private final int rowSize;
+   /** The number of lookups since the frequencies were last halved. */
+   private final AtomicInteger lookups;
+
+   /** Counts of the lookups that hit and missed the cache, and of the entries evicted. */
+   private final LongAdder hits, misses, evictions;
+
+   /**
+    * Instantiates an empty cache.
+    * @param capacity the maximum total weight of the cached factorizations, where each
+    * factorization weighs about as many words of memory as its integers occupy.
+    */
+   public FactorizationCache(long capacity) {
+      if(capacity <= 0)
+         throw new IllegalArgumentException("Error: cache capacity must be positive");
+      this.entries = new ConcurrentHashMap<>();
+      this.admissionOrder = new ArrayDeque<>();
+      this.capacity = capacity;
+      this.rowSize = Integer.highestOneBit((int) Math.min(capacity * COUNTERS_PER_WEIGHT, 1 << 24) - 1) * 2;
+      this.sketch = new AtomicLongArray(SEEDS.length * this.rowSize / 16 + 1);
+      this.lookups = new AtomicInteger();
+      this.hits = new LongAdder();
+      this.misses = new LongAdder();
+      this.evictions = new LongAdder();
+   }
+
+   /**
+    * Finds the prime factorization of the given integer, as a map from each prime factor
+    * to its multiplicity, from the cache if it is present and otherwise by factoring it.
+    * The sign of the integer is ignored, and both 0 and 1 have an empty factorization.
+    * @param num the integer to be factored.
+    * @return an unmodifiable map of each prime factor of the integer to its multiplicity,
+    * in increasing order.
+    */
+   public SortedMap<BigInteger, Integer> factor(BigInteger num) {
+      num = num.abs();
+      recordLookup(num);
+      Entry entry = this.entries.get(num);
+      if(entry != null) {
+         this.hits.increment();
+         return entry.factors;
+      }
+      this.misses.increment();
+
+      SortedMap<BigInteger, Integer> factors = Collections.unmodifiableSortedMap(IntegerFactorization.factor(num));
+      admit(num, new Entry(factors, weigh(num, factors)));
+      return factors;
+   }
+
+   /**
+    * Returns the number of lookups that found their factorization in the cache.
+    * @return the number of cache hits.
+    */
+   public long getHitCount() {
+      return this.hits.sum();
+   }
+
+   /**
+    * Returns the number of lookups that had to factor their integer.
+    * @return the number of cache misses.
+    */
+   public long getMissCount() {
+      return this.misses.sum();
+   }
+
+   /**
+    * Returns the number of factorizations evicted to make room for others.
+    * @return the number of evictions.
+    */
+   public long getEvictionCount() {
+      return this.evictions.sum();
+   }
+
+   /**
+    * Returns the fraction of lookups that found their factorization in the cache.
+    * @return the hit rate, or 0 if there have been no lookups.
+    */
+   public double getHitRate() {
+      long hits = getHitCount(), total = hits + getMissCount();
+      return total == 0 ? 0 : (double) hits / total;
+   }
+
+   /**
+    * Returns the number of factorizations currently cached.
+    * @return the size of the cache.
+    */
+   public int size() {
+      return this.entries.size();
+   }
+
+   /**
+    * Returns a string representation of the cache's statistics.
+    * @return a string representation of the cache.
+    */
+   @Override
+   public String toString() {
+      return String.format("FactorizationCache[size=%d, hits=%d, misses=%d, evictions=%d, hitRate=%.3f]",
+              size(), getHitCount(), getMissCount(), getEvictionCount(), getHitRate());
+   }
+
+   // ------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Adds the given factorization to the cache if there is room, or if the integer is looked
+    * up more often than each of the oldest entries that would have to be evicted for it.
+    * @param num the factored integer.
+    * @param entry the factorization to be cached.
+    */
+   private synchronized void admit(BigInteger num, Entry entry) {
+      if(entry.weight > this.capacity || this.entries.containsKey(num))
+         return;
+
+      int frequency = frequency(num);
+      while(this.weight + entry.weight > this.capacity) {
+         BigInteger victim = this.admissionOrder.peek();
+         if(frequency(victim) >= frequency)
+            return; // the victim is more valuable, so the new factorization is not cached
+         this.admissionOrder.poll();
+         this.weight -= this.entries.remove(victim).weight;
+         this.evictions.increment();
+      }
+      this.entries.put(num, entry);
+      this.admissionOrder.add(num);
+      this.weight += entry.weight;
+   }
+
+   /**
+    * Estimates the weight of the given factorization, as the number of words of memory
+    * taken by its integers plus a fixed overhead for each.
+    * @param num the factored integer.
+    * @param factors the integer's factorization.
+    * @return the weight of the factorization.
+    */
+   private static int weigh(BigInteger num, Map<BigInteger, Integer> factors) {
+      int weight = num.bitLength() / 64 + 4;
+      for(BigInteger prime : factors.keySet())
+         weight += prime.bitLength() / 64 + 4;
+      return weight;
+   }
+
+   /**
+    * Records a lookup of the given integer in the frequency sketch, incrementing its counter
+    * in each row, and halves every counter once enough lookups have been recorded so that
+    * the frequencies reflect recent lookups.
+    * @param num the integer looked up.
+    */
+   private void recordLookup(BigInteger num) {
+      for(int row = 0; row < SEEDS.length; row++) {
+         int counter = counterIndex(num, row);
+         int word = counter >>> 4, shift = (counter & 15) << 2;
+         long old, updated;
+         do {
+            old = this.sketch.get(word);
+            if(((old >>> shift) & MAX_COUNT) == MAX_COUNT)
+               break;
+            updated = old + (1L << shift);
+         } while(!this.sketch.compareAndSet(word, old, updated));
+      }
+
+      if(this.lookups.incrementAndGet() >= this.rowSize / COUNTERS_PER_WEIGHT * AGING_PERIOD) {
+         this.lookups.set(0);
+         for(int word = 0; word < this.sketch.length(); word++) {
+            long old;
+            do {
+               old = this.sketch.get(word);
+            } while(!this.sketch.compareAndSet(word, old, (old >>> 1) & 0x7777777777777777L));
+         }
+      }
+   }
+
+   /**
+    * Estimates how often the given integer has been looked up recently, as the minimum of
+    * its counters over the rows of the sketch.
+    * @param num the integer to be checked.
+    * @return the estimated frequency of the integer.
+    */
+   private int frequency(BigInteger num) {
+      int frequency = MAX_COUNT;
+      for(int row = 0; row < SEEDS.length; row++) {
+         int counter = counterIndex(num, row);
+         int count = (int) (this.sketch.get(counter >>> 4) >>> ((counter & 15) << 2)) & MAX_COUNT;
+         frequency = Math.min(frequency, count);
+      }
+      return frequency;
+   }
+
+   /**
+    * Finds the index of the counter for the given integer in the given row of the sketch.
+    * @param num the integer to be hashed.
+    * @param row the row of the sketch.
+    * @return the index of the counter among all counters in the sketch.
+    */
+   private int counterIndex(BigInteger num, int row) {
+      long hash = (num.hashCode() + SEEDS[row]) * SEEDS[(row + 1) % SEEDS.length];
+      hash ^= hash >>> 31;
+      return row * this.rowSize + (int) (hash & (this.rowSize - 1));
+   }
+
+   /**
+    * A cached factorization, along with its weight.
+    */
+   private static class Entry {
+      /** The factorization, as a map of each prime factor to its multiplicity. */
+      private final SortedMap<BigInteger, Integer> factors;
+      /** The weight of the factorization. */
+      private final int weight;
+
+      /**
+       * Instantiates a cached factorization.
+       * @param factors the factorization, as a map of each prime factor to its multiplicity.
+       * @param weight the weight of the factorization.
+       */
+      private Entry(SortedMap<BigInteger, Integer> factors, int weight) {
+         this.factors = factors;
+         this.weight = weight;
+      }
+   }
+}
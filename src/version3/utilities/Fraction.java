@@ -6,11 +6,25 @@ import java.util.*;
 
 /**
  * A class based, immutable representation of a rational number, or fraction.
+ * Fractions whose numerator and denominator are small enough are stored and
+ * operated on as primitive {@code long} values, and are only promoted to
+ * {@code BigInteger} values when an operation would overflow.
  * @author Nathan Harbison
  */
 public class Fraction extends Number implements Comparable<Fraction> {
-   /** The numerator and denominator of the fraction. */
-   private BigInteger num, denom;
+   /**
+    * The (exclusive) bound on the magnitude of the numerator and denominator of a
+    * fraction stored in primitive form, i.e. both lie in [-2^62, 2^62).
+    */
+   private static final long SMALL_LIMIT = 1L << 62;
+
+   /** The numerator and denominator of the fraction, if stored in primitive form. */
+   private long num, denom;
+   /**
+    * The numerator and denominator of the fraction, if either is too large to be stored
+    * in primitive form; otherwise, both are null.
+    */
+   private BigInteger bigNum, bigDenom;
    /** A fractional representation of the number 1. */
    public static final Fraction ONE = new Fraction(1, 1);
    /** A fractional representation of the number -1. */
@@ -49,11 +63,15 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @param denom the denominator of the fraction.
     */
    public Fraction(BigInteger num, BigInteger denom) {
-      this.num = num;
-      this.denom = denom;
-      simplify();
+      setValue(num, denom);
    }
 
+   /**
+    * Instantiates a blank fraction, whose value is to be set by one of
+    * the {@code setValue} helper methods.
+    */
+   private Fraction() {}
+
    /**
     * Instantiates a fraction given an appropriately formatted string
     * representation of one, of the form "<numerator>/<denominator>" or
@@ -65,13 +83,10 @@ public class Fraction extends Number implements Comparable<Fraction> {
       try {
          if (frac.contains("/")) {
             int slashInd = frac.indexOf("/");
-            this.num = new BigInteger(frac.substring(0, slashInd));
-            this.denom = new BigInteger(frac.substring(slashInd + 1));
+            setValue(new BigInteger(frac.substring(0, slashInd)), new BigInteger(frac.substring(slashInd + 1)));
          } else {
-            this.num = new BigInteger(frac);
-            this.denom = BigInteger.ONE;
+            setValue(new BigInteger(frac), BigInteger.ONE);
          }
-         simplify();
       } catch(NumberFormatException ex) {
          throw new NumberFormatException("Error: Incorrectly formatted fraction \"" + frac + "\"");
       }
@@ -82,7 +97,9 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return the numerator of the fraction.
     */
    public BigInteger getNum() {
-      return this.num;
+      if(this.bigNum == null)
+         return BigInteger.valueOf(this.num);
+      return this.bigNum;
    }
 
    /**
@@ -90,6 +107,33 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return the denominator of the fraction.
     */
    public BigInteger getDenom() {
+      if(this.bigDenom == null)
+         return BigInteger.valueOf(this.denom);
+      return this.bigDenom;
+   }
+
+   /**
+    * Determines if the fraction is stored in primitive form, i.e. if both its
+    * numerator and denominator can be operated on as {@code long} values.
+    * @return whether the fraction is stored in primitive form.
+    */
+   boolean isSmall() {
+      return this.bigNum == null;
+   }
+
+   /**
+    * Returns the numerator of the fraction, if stored in primitive form.
+    * @return the numerator of the fraction as a {@code long}.
+    */
+   long smallNum() {
+      return this.num;
+   }
+
+   /**
+    * Returns the denominator of the fraction, if stored in primitive form.
+    * @return the denominator of the fraction as a {@code long}.
+    */
+   long smallDenom() {
       return this.denom;
    }
 
@@ -103,7 +147,18 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return a new fraction representing the sum.
     */
    public Fraction add(Fraction frac) {
-      return new Fraction(this.num.multiply(frac.denom).add(frac.num.multiply(this.denom)), this.denom.multiply(frac.denom));
+      if(this.isSmall() && frac.isSmall()) {
+         try {
+            if(this.denom == frac.denom)
+               return valueOf(Math.addExact(this.num, frac.num), this.denom);
+            return valueOf(Math.addExact(Math.multiplyExact(this.num, frac.denom), Math.multiplyExact(frac.num, this.denom)),
+                    Math.multiplyExact(this.denom, frac.denom));
+         } catch(ArithmeticException ex) {
+            // overflowed - fall through to arbitrary precision arithmetic
+         }
+      }
+      return valueOf(this.getNum().multiply(frac.getDenom()).add(frac.getNum().multiply(this.getDenom())),
+              this.getDenom().multiply(frac.getDenom()));
    }
 
    /**
@@ -113,7 +168,7 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return a new fraction representing the difference.
     */
    public Fraction subtract(Fraction frac) {
-      return new Fraction(this.num.multiply(frac.denom).subtract(frac.num.multiply(this.denom)), this.denom.multiply(frac.denom));
+      return add(frac.inverse());
    }
 
    /**
@@ -123,7 +178,20 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return a new fraction representing the product.
     */
    public Fraction multiply(Fraction frac) {
-      return new Fraction(this.num.multiply(frac.num), this.denom.multiply(frac.denom));
+      if(this.isSmall() && frac.isSmall()) {
+         // cross-reduce first, so the product is already in lowest terms
+         long gcd1 = Functions.gcd(Math.abs(this.num), frac.denom);
+         long gcd2 = Functions.gcd(Math.abs(frac.num), this.denom);
+         if(gcd1 == 0 || gcd2 == 0) // a numerator and denominator are both zero
+            return valueOf(this.getNum().multiply(frac.getNum()), this.getDenom().multiply(frac.getDenom()));
+         try {
+            return valueOf(Math.multiplyExact(this.num / gcd1, frac.num / gcd2),
+                    Math.multiplyExact(this.denom / gcd2, frac.denom / gcd1));
+         } catch(ArithmeticException ex) {
+            // overflowed - fall through to arbitrary precision arithmetic
+         }
+      }
+      return valueOf(this.getNum().multiply(frac.getNum()), this.getDenom().multiply(frac.getDenom()));
    }
 
    /**
@@ -133,7 +201,9 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return a new fraction representing the product.
     */
    public Fraction multiply(BigInteger number) {
-      return new Fraction(this.num.multiply(number), this.denom);
+      if(this.isSmall() && number.bitLength() < 63)
+         return multiply(valueOf(number.longValue(), 1));
+      return valueOf(this.getNum().multiply(number), this.getDenom());
    }
 
    /**
@@ -143,7 +213,7 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return a new fraction representing the quotient.
     */
    public Fraction divide(Fraction frac) {
-      return new Fraction(this.num.multiply(frac.denom), this.denom.multiply(frac.num));
+      return multiply(frac.reciprocal());
    }
 
    /**
@@ -153,7 +223,9 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return a new fraction representing the quotient.
     */
    public Fraction divide(BigInteger number) {
-      return new Fraction(this.num, this.denom.multiply(number));
+      if(this.isSmall() && number.bitLength() < 63)
+         return multiply(valueOf(1, number.longValue()));
+      return valueOf(this.getNum(), this.getDenom().multiply(number));
    }
 
    /**
@@ -161,7 +233,9 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return a new fraction representing the additive inverse.
     */
    public Fraction inverse() {
-      return new Fraction(this.num.multiply(new BigInteger("-1")), this.denom);
+      if(this.isSmall())
+         return valueOf(-this.num, this.denom);
+      return valueOf(this.bigNum.negate(), this.bigDenom);
    }
 
    /**
@@ -169,16 +243,33 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return a new fraction representing the reciprocal.
     */
    public Fraction reciprocal() {
-      return new Fraction(this.denom, this.num);
+      if(this.isSmall())
+         return valueOf(this.denom, this.num);
+      return valueOf(this.bigDenom, this.bigNum);
    }
 
    /**
     * Computes and returns the fraction raised to the given power, as new fraction.
     * @param pow the power the fraction is to be raised to.
     * @return a new fraction representing the fraction raised to the given power.
+    * @throws ArithmeticException if the power is negative.
     */
    public Fraction pow(int pow) {
-      return new Fraction(this.num.pow(pow), this.denom.pow(pow));
+      if(pow < 0)
+         throw new ArithmeticException("Error: Negative power " + pow);
+      if(this.isSmall()) {
+         try {
+            long numPow = 1, denomPow = 1;
+            for(int i = 0; i < pow; i++) {
+               numPow = Math.multiplyExact(numPow, this.num);
+               denomPow = Math.multiplyExact(denomPow, this.denom);
+            }
+            return valueOf(numPow, denomPow);
+         } catch(ArithmeticException ex) {
+            // overflowed - fall through to arbitrary precision arithmetic
+         }
+      }
+      return valueOf(this.getNum().pow(pow), this.getDenom().pow(pow));
    }
 
    /**
@@ -190,7 +281,7 @@ public class Fraction extends Number implements Comparable<Fraction> {
    public Optional<Fraction> nthRoot(int n)
    {
       if(isNthPower(n))
-         return Optional.of(new Fraction(Functions.nthRoot(this.num, n), Functions.nthRoot(this.denom, n)));
+         return Optional.of(new Fraction(Functions.nthRoot(this.getNum(), n), Functions.nthRoot(this.getDenom(), n)));
       return Optional.empty();
    }
 
@@ -200,7 +291,7 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return whether the fraction is a perfect nth power.
     */
    public boolean isNthPower(int n) {
-      return Functions.isNthPower(this.num.abs(), n) && Functions.isNthPower(this.denom, n);
+      return Functions.isNthPower(this.getNum(), n) && Functions.isNthPower(this.getDenom(), n);
    }
 
    /**
@@ -208,7 +299,9 @@ public class Fraction extends Number implements Comparable<Fraction> {
     * @return the absolute value of the given fraction.
     */
    public Fraction abs() {
-      return new Fraction(this.num.abs(), this.denom);
+      if(this.isSmall())
+         return valueOf(Math.abs(this.num), this.denom);
+      return valueOf(this.bigNum.abs(), this.bigDenom);
    }
 
    /**
@@ -217,7 +310,9 @@ public class Fraction extends Number implements Comparable<Fraction> {
     */
    public boolean isWhole()
    {
-      return this.denom.equals(BigInteger.ONE);
+      if(this.isSmall())
+         return this.denom == 1;
+      return this.bigDenom.equals(BigInteger.ONE);
    }
 
    // ------------------------------------------------------------------------------
@@ -242,10 +337,15 @@ public class Fraction extends Number implements Comparable<Fraction> {
     */
    @Override
    public int compareTo(Fraction frac) {
-      BigInteger diff = this.num.multiply(frac.denom).subtract(frac.num.multiply(this.denom));
-      if(!diff.equals(BigInteger.ZERO))
-         diff = diff.divide(diff.abs());
-      return diff.intValue();
+      if(this.isSmall() && frac.isSmall()) {
+         // compare the full 128-bit cross products, which cannot overflow
+         long prod1 = this.num * frac.denom, prod2 = frac.num * this.denom;
+         int cmp = Long.compare(Math.multiplyHigh(this.num, frac.denom), Math.multiplyHigh(frac.num, this.denom));
+         if(cmp == 0)
+            cmp = Long.compareUnsigned(prod1, prod2);
+         return Integer.signum(cmp);
+      }
+      return this.getNum().multiply(frac.getDenom()).subtract(frac.getNum().multiply(this.getDenom())).signum();
    }
 
    /**
@@ -254,7 +354,9 @@ public class Fraction extends Number implements Comparable<Fraction> {
     */
    @Override
    public int hashCode() {
-      return Objects.hash(this.num, this.denom);
+      if(this.isSmall())
+         return 31 * Long.hashCode(this.num) + Long.hashCode(this.denom);
+      return Objects.hash(this.bigNum, this.bigDenom);
    }
 
    /**
@@ -267,7 +369,11 @@ public class Fraction extends Number implements Comparable<Fraction> {
       if(this == obj)
          return true;
       if(obj instanceof Fraction frac) {
-         return this.num.equals(frac.num) && this.denom.equals(frac.denom);
+         // fractions are always stored in primitive form when possible,
+         // so equal fractions are stored in the same form
+         if(this.isSmall() || frac.isSmall())
+            return this.isSmall() && frac.isSmall() && this.num == frac.num && this.denom == frac.denom;
+         return this.bigNum.equals(frac.bigNum) && this.bigDenom.equals(frac.bigDenom);
       }
       return false;
    }
@@ -278,9 +384,9 @@ public class Fraction extends Number implements Comparable<Fraction> {
     */
    @Override
    public String toString() {
-      if(!this.denom.equals(BigInteger.ONE))
-         return this.num.toString() + "/" + this.denom.toString();
-      return this.num.toString();
+      if(!this.isWhole())
+         return this.getNum().toString() + "/" + this.getDenom().toString();
+      return this.getNum().toString();
    }
 
    /**
@@ -291,7 +397,7 @@ public class Fraction extends Number implements Comparable<Fraction> {
    @Override
    public int intValue() {
       if(isWhole())
-         return this.num.intValueExact();
+         return this.getNum().intValueExact();
       return (int) doubleValue();
    }
 
@@ -303,7 +409,7 @@ public class Fraction extends Number implements Comparable<Fraction> {
    @Override
    public long longValue() {
       if(isWhole())
-         return this.num.longValueExact();
+         return this.getNum().longValueExact();
       return (long) doubleValue();
    }
 
@@ -314,7 +420,7 @@ public class Fraction extends Number implements Comparable<Fraction> {
     */
    @Override
    public float floatValue() {
-      return new BigDecimal(this.num).divide(new BigDecimal(this.denom), RoundingMode.HALF_UP).floatValue();
+      return (float) doubleValue();
    }
 
    /**
@@ -324,22 +430,106 @@ public class Fraction extends Number implements Comparable<Fraction> {
     */
    @Override
    public double doubleValue() {
-      return new BigDecimal(this.num).divide(new BigDecimal(this.denom), RoundingMode.HALF_UP).doubleValue();
+      if(this.isSmall())
+         return (double) this.num / this.denom;
+      return new BigDecimal(this.bigNum).divide(new BigDecimal(this.bigDenom), MathContext.DECIMAL64).doubleValue();
    }
 
    // ------------------------------------------------------------------------------
    // Helper methods
 
    /**
-    * Simplifies the fraction by dividing the numerator and denominator by their
-    * greatest common divisor and making the denominator positive (so the sign of
-    * the fraction is given by the sign of the numerator).
+    * Returns a new fraction with the given numerator and denominator, in simplest form.
+    * @param num the numerator of the fraction.
+    * @param denom the denominator of the fraction.
+    * @return a new fraction with the given value.
+    */
+   static Fraction valueOf(long num, long denom) {
+      Fraction frac = new Fraction();
+      frac.setValue(num, denom);
+      return frac;
+   }
+
+   /**
+    * Returns a new fraction with the given numerator and denominator, in simplest form.
+    * @param num the numerator of the fraction.
+    * @param denom the denominator of the fraction.
+    * @return a new fraction with the given value.
+    */
+   static Fraction valueOf(BigInteger num, BigInteger denom) {
+      Fraction frac = new Fraction();
+      frac.setValue(num, denom);
+      return frac;
+   }
+
+   /**
+    * Sets the value of the fraction, simplifying it by dividing the numerator and
+    * denominator by their greatest common divisor and making the denominator positive
+    * (so the sign of the fraction is given by the sign of the numerator). The fraction
+    * is stored in primitive form if the simplified numerator and denominator are small enough.
+    * @param num the numerator of the fraction.
+    * @param denom the denominator of the fraction.
+    */
+   private void setValue(long num, long denom) {
+      if(denom == 1 && isSmall(num)) { // already simplified
+         this.num = num;
+         this.denom = 1;
+         return;
+      }
+      if(num == Long.MIN_VALUE || denom == Long.MIN_VALUE) { // cannot be negated
+         setValue(BigInteger.valueOf(num), BigInteger.valueOf(denom));
+         return;
+      }
+
+      long gcd = Functions.gcd(Math.abs(num), Math.abs(denom)); // make num and denom be coprime
+      if(denom < 0) // make denom is positive
+         gcd = -gcd;
+      num /= gcd;
+      denom /= gcd;
+      if(isSmall(num) && isSmall(denom)) {
+         this.num = num;
+         this.denom = denom;
+      } else {
+         this.bigNum = BigInteger.valueOf(num);
+         this.bigDenom = BigInteger.valueOf(denom);
+      }
+   }
+
+   /**
+    * Sets the value of the fraction, simplifying it by dividing the numerator and
+    * denominator by their greatest common divisor and making the denominator positive
+    * (so the sign of the fraction is given by the sign of the numerator). The fraction
+    * is stored in primitive form if the simplified numerator and denominator are small enough.
+    * @param num the numerator of the fraction.
+    * @param denom the denominator of the fraction.
+    */
+   private void setValue(BigInteger num, BigInteger denom) {
+      if(num.bitLength() < 63 && denom.bitLength() < 63) {
+         setValue(num.longValue(), denom.longValue());
+         return;
+      }
+
+      BigInteger gcd = num.gcd(denom); // make num and denom be coprime
+      if(denom.signum() < 0) // make denom is positive
+         gcd = gcd.negate();
+      num = num.divide(gcd);
+      denom = denom.divide(gcd);
+      if(num.bitLength() < 63 && denom.bitLength() < 63) {
+         this.num = num.longValue();
+         this.denom = denom.longValue();
+      } else {
+         this.bigNum = num;
+         this.bigDenom = denom;
+      }
+   }
+
+   /**
+    * Determines if the given value can be stored as the numerator or denominator
+    * of a fraction in primitive form.
+    * @param value the value to be tested.
+    * @return whether the value is small enough to be stored in primitive form.
     */
-   private void simplify() {
-      BigInteger gcd = this.num.abs().gcd(this.denom.abs()); // make num and denom be coprime
-      if(this.denom.compareTo(BigInteger.ZERO) < 0) // make denom is positive
-         gcd = gcd.multiply(new BigInteger("-1"));
-      this.num = this.num.divide(gcd);
-      this.denom = this.denom.divide(gcd);
+   private static boolean isSmall(long value) {
+      return -SMALL_LIMIT <= value && value < SMALL_LIMIT;
    }
 }
\ No newline at end of file
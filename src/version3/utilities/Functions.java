@@ -8,11 +8,50 @@ import java.math.*;
  * @author Nathan Harbison
  */
 public class Functions {
+   /** The maximum total weight of the shared cache of integer factorizations (about 8 bytes per unit). */
+   private static final long FACTOR_CACHE_CAPACITY = 1 << 16;
+   /** The shared cache of integer factorizations, used when finding the factors of an integer. */
+   private static final FactorizationCache FACTOR_CACHE = new FactorizationCache(FACTOR_CACHE_CAPACITY);
+   /** The small moduli whose residues filter perfect squares and cubes, the first being 64. */
+   private static final int[] RESIDUE_MODULI = {64, 63, 65, 11, 19, 37};
+   /** The product of the residue moduli after 64, so that one remainder serves them all. */
+   private static final int RESIDUE_MODULUS = 63 * 65 * 11 * 19 * 37;
+   /** The product of the residue moduli after 64, as a BigInteger. */
+   private static final BigInteger BIG_RESIDUE_MODULUS = BigInteger.valueOf(RESIDUE_MODULUS);
+   /** Whether each integer modulo each of the residue moduli is a square modulo it. */
+   private static final boolean[][] SQUARE_RESIDUES = new boolean[RESIDUE_MODULI.length][];
+   /** Whether each integer modulo each of the residue moduli is a cube modulo it. */
+   private static final boolean[][] CUBE_RESIDUES = new boolean[RESIDUE_MODULI.length][];
+   /** The maximum number of perfect power decompositions cached. */
+   private static final int POWER_CACHE_SIZE = 1 << 12;
+   /** The most recently used perfect power decompositions, by integer. */
+   private static final Map<BigInteger, Map.Entry<BigInteger, Integer>> POWER_CACHE = Collections.synchronizedMap(
+           new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<BigInteger, Map.Entry<BigInteger, Integer>> eldest) {
+                 return size() > POWER_CACHE_SIZE;
+              }
+           });
+
+   static {
+      for(int i = 0; i < RESIDUE_MODULI.length; i++) {
+         int mod = RESIDUE_MODULI[i];
+         SQUARE_RESIDUES[i] = new boolean[mod];
+         CUBE_RESIDUES[i] = new boolean[mod];
+         for(long r = 0; r < mod; r++) {
+            SQUARE_RESIDUES[i][(int) (r * r % mod)] = true;
+            CUBE_RESIDUES[i][(int) (r * r * r % mod)] = true;
+         }
+      }
+   }
+
    //-------------------------------------------------------------------------------------------------
    // Numeric operations (roots, finding factors, gcd/lcm)
 
    /**
-    * Determines (approximate) nth root of the given number via Newton's method.
+    * Determines the nth root of the given number, rounded towards zero, via Newton's method
+    * starting from a floating point estimate above the root (or via {@link BigInteger#sqrt()}
+    * for square roots).
     * @param number the number to be operated on.
     * @param n the root of the operation.
     * @return the nth root of the given number.
@@ -21,37 +60,109 @@ public class Functions {
       if (n < 1 || (number.compareTo(BigInteger.ZERO) < 0 && n % 2 == 0)) {
          throw new IllegalArgumentException("Error: root is less than 1 or taking even root of negative number");
       }
+      if(number.signum() < 0)
+         return nthRoot(number.negate(), n).negate();
+      if(n == 1 || number.bitLength() <= 1)
+         return number;
+      if(n == 2)
+         return number.sqrt();
 
-      // Make an initial guess, by shifting a bit to the position of floor(log2(number)/n)
-      // as root = 2^(log2(number)/n)
-      BigInteger guess = BigInteger.ONE;
-      BigInteger iter = number;
-      while(iter.compareTo(BigInteger.ZERO) > 0) {
-         guess = guess.shiftLeft(1);
-         iter = iter.shiftRight(n);
-      }
+      // estimate root = 2^(log2(number)/n) in floating point, from the leading 64 bits of the number
+      int shift = Math.max(number.bitLength() - 64, 0);
+      double logRoot = (Math.log(number.shiftRight(shift).doubleValue()) / Math.log(2) + shift) / n;
+      int extra = Math.max((int) logRoot - 52, 0);
+      BigInteger guess = BigInteger.valueOf((long) Math.pow(2, logRoot - extra) + 2).shiftLeft(extra);
+      guess = guess.add(guess.shiftRight(30)); // absorb floating point error so the estimate is above the root
 
+      // from above the root, new_guess = (guess * (n-1) + number / guess^(n-1)) / n decreases until it passes the root
+      BigInteger bigN = BigInteger.valueOf(n), nMinus1 = BigInteger.valueOf(n - 1);
       while (true) {
-         // new_guess = (guess * (n-1) + number / guess^(n-1)) / n
-         BigInteger new_guess = guess.multiply(BigInteger.valueOf(n - 1)).add(number.divide(guess.pow(n - 1))).divide(BigInteger.valueOf(n));
-         BigInteger diff = new_guess.subtract(guess).abs();
-         if (diff.compareTo(BigInteger.ONE) <= 0) { // converged
-            return guess.min(new_guess);
+         BigInteger new_guess = nMinus1.multiply(guess).add(number.divide(guess.pow(n - 1))).divide(bigN);
+         if (new_guess.compareTo(guess) >= 0) { // converged
+            return guess;
          }
          guess = new_guess;
       }
    }
 
    /**
-    * Determines if the given number is a perfect nth power.
+    * Determines if the given number is a perfect nth power. Squares and cubes are first
+    * checked against tables of the quadratic and cubic residues modulo small integers,
+    * which rejects nearly all numbers that are not perfect powers without taking a root.
     * @param number the number to test.
     * @param n the exponent to test as the power.
     * @return whether the given number is a perfect nth power.
     */
    public static boolean isNthPower(BigInteger number, int n) {
+      if(n < 1)
+         throw new IllegalArgumentException("Error: power is less than 1");
+      if(number.signum() < 0)
+         return n % 2 == 1 && isNthPower(number.negate(), n);
+      if(n == 1 || number.bitLength() <= 1)
+         return true;
+      if(number.bitLength() <= n) // strictly between 1 and 2^n
+         return false;
+      if((n % 2 == 0 && !hasResidues(number, SQUARE_RESIDUES)) || (n % 3 == 0 && !hasResidues(number, CUBE_RESIDUES)))
+         return false;
       return nthRoot(number, n).pow(n).equals(number);
    }
 
+   /**
+    * Decomposes the given integer as a perfect power b^k with k as large as possible, by
+    * repeatedly taking prime roots of the integer, with primes up to its log base 2.
+    * Decompositions are cached, so that the coefficients of an expression are only
+    * decomposed once as it is factored. Negative integers only have odd exponents, and
+    * 0, 1 and -1 are decomposed as themselves to the first power.
+    * @param num the integer to be decomposed.
+    * @return a pair of the base b and the maximal exponent k, such that b^k is the integer.
+    */
+   public static Map.Entry<BigInteger, Integer> perfectPower(BigInteger num) {
+      if(num.abs().compareTo(BigInteger.ONE) <= 0)
+         return Map.entry(num, 1);
+      Map.Entry<BigInteger, Integer> power = POWER_CACHE.get(num);
+      if(power != null)
+         return power;
+
+      BigInteger base = num.abs();
+      int exp = 1;
+      for(int prime : PrimeSieve.primesUpTo(base.bitLength())) {
+         if(prime >= base.bitLength()) // the base is below 2^prime, so no longer a prime-th power
+            break;
+         while(isNthPower(base, prime)) {
+            base = nthRoot(base, prime);
+            exp *= prime;
+         }
+      }
+      if(num.signum() < 0) {
+         // (-b)^k with k odd is -(b^k), so even factors of the exponent are moved into the base
+         for(; exp % 2 == 0; exp /= 2)
+            base = base.multiply(base);
+         base = base.negate();
+      }
+
+      power = Map.entry(base, exp);
+      POWER_CACHE.put(num, power);
+      return power;
+   }
+
+   /**
+    * Finds the given root of the given integer if the integer is a perfect power, using its
+    * (cached) perfect power decomposition.
+    * @param num the integer whose root is to be found.
+    * @param n the root to be taken, at least 1.
+    * @return the nth root of the integer, or nothing if the integer is not a perfect nth power.
+    */
+   public static Optional<BigInteger> exactRoot(BigInteger num, int n) {
+      if(n < 1)
+         throw new IllegalArgumentException("Error: root is less than 1");
+      if(num.abs().compareTo(BigInteger.ONE) <= 0)
+         return num.signum() >= 0 || n % 2 == 1 ? Optional.of(num) : Optional.empty();
+      Map.Entry<BigInteger, Integer> power = perfectPower(num);
+      if(power.getValue() % n != 0)
+         return Optional.empty();
+      return Optional.of(power.getKey().pow(power.getValue() / n));
+   }
+
    /**
     * Determines if an integer is a power of 2, i.e.
     * can be written as 2^n for some integer n.
@@ -63,20 +174,24 @@ public class Functions {
    }
 
    /**
-    * Finds and returns a list of all factors of the given integer.
+    * Finds and returns a list of all (positive) factors of the given integer,
+    * in increasing order, from its prime factorization (which is cached).
     * @param num the integer to be factored.
     * @return all factors of the given integer.
     */
    public static List<BigInteger> findFactors(BigInteger num) {
-      List<BigInteger> factors = new ArrayList<>();
-      BigInteger sqrt = nthRoot(num, 2);
-      for(BigInteger i = BigInteger.ONE; i.compareTo(sqrt) <= 0; i = i.add(BigInteger.ONE)) {
-         if(num.remainder(i).equals(BigInteger.ZERO)) { // i divides num
-            factors.add(i);
-            factors.add(num.divide(i));
-         }
-      }
-      return factors;
+      if(num.signum() == 0)
+         return new ArrayList<>();
+      return IntegerFactorization.divisors(FACTOR_CACHE.factor(num));
+   }
+
+   /**
+    * Returns the shared cache of integer factorizations used by {@link #findFactors(BigInteger)},
+    * e.g. to inspect its hit and miss statistics.
+    * @return the shared factorization cache.
+    */
+   public static FactorizationCache getFactorCache() {
+      return FACTOR_CACHE;
    }
 
    /**
@@ -87,19 +202,35 @@ public class Functions {
     */
    public static List<Integer> findFactors(int num) {
       List<Integer> factors = new ArrayList<>();
-      for(int i = 1; i <= Math.sqrt(num); i++) {
-         if(num % i == 0) {
-            factors.add(num / i);
-            factors.add(i);
+      if(num <= 0)
+         return factors;
+
+      // divide out each prime factor in turn, multiplying the factors found so far by its powers
+      factors.add(1);
+      for(int prime : PrimeSieve.primesUpTo((int) Math.sqrt(num))) {
+         if(prime > num / prime)
+            break;
+         int size = factors.size();
+         for(int primePow = 1; num % prime == 0; num /= prime) {
+            primePow *= prime;
+            for(int i = 0; i < size; i++)
+               factors.add(factors.get(i) * primePow);
          }
       }
+      if(num > 1) { // the remaining cofactor is prime
+         int size = factors.size();
+         for(int i = 0; i < size; i++)
+            factors.add(factors.get(i) * num);
+      }
 
       Collections.sort(factors);
       return factors;
    }
 
    /**
-    * Finds the (positive) gcd of the two given numbers via the Euclidean algorithm.
+    * Finds the (positive) gcd of the two given numbers. Numbers that fit in a long are
+    * handled by the binary gcd algorithm, and larger numbers by Lehmer's algorithm, which
+    * performs runs of Euclidean steps on their leading 62 bits with primitive arithmetic.
     * @param m one of the numbers whose gcd is to be computed.
     * @param n one of the numbers whose gcd is to be computed.
     * @return the gcd of the two given integers.
@@ -107,18 +238,84 @@ public class Functions {
    public static BigInteger gcd(BigInteger m, BigInteger n) {
       m = m.abs();
       n = n.abs();
+      if(m.compareTo(n) < 0) {
+         BigInteger temp = m;
+         m = n;
+         n = temp;
+      }
 
-      if(m.equals(BigInteger.ZERO))
+      while(n.bitLength() > 62) {
+         // simulate Euclid's algorithm on the leading bits of m and n, tracking the cofactors
+         // a, b, c, d such that the true remainders are a * m + b * n and c * m + d * n
+         int shift = m.bitLength() - 62;
+         long x = m.shiftRight(shift).longValue(), y = n.shiftRight(shift).longValue();
+         long a = 1, b = 0, c = 0, d = 1;
+         while(y + c != 0 && y + d != 0) {
+            long quot = (x + a) / (y + c);
+            if(quot != (x + b) / (y + d)) // the leading bits no longer determine the quotient
+               break;
+            long temp = a - quot * c;
+            a = c;
+            c = temp;
+            temp = b - quot * d;
+            b = d;
+            d = temp;
+            temp = x - quot * y;
+            x = y;
+            y = temp;
+         }
+
+         if(b == 0) { // no progress from the leading bits, so take a full step
+            BigInteger rem = m.mod(n);
+            m = n;
+            n = rem;
+         } else {
+            BigInteger bigM = m;
+            m = bigM.multiply(BigInteger.valueOf(a)).add(n.multiply(BigInteger.valueOf(b)));
+            n = bigM.multiply(BigInteger.valueOf(c)).add(n.multiply(BigInteger.valueOf(d)));
+         }
+      }
+
+      if(n.signum() == 0)
+         return m;
+      if(m.bitLength() > 62)
+         m = m.mod(n);
+      return BigInteger.valueOf(gcd(m.longValue(), n.longValue()));
+   }
+
+   /**
+    * Finds the gcd of the two given non-negative numbers via the binary gcd algorithm,
+    * which only needs shifts and subtractions.
+    * @param m one of the numbers whose gcd is to be computed.
+    * @param n one of the numbers whose gcd is to be computed.
+    * @return the gcd of the two given integers.
+    * @throws IllegalArgumentException if either number is negative.
+    */
+   public static long gcd(long m, long n) {
+      if(m < 0 || n < 0)
+         throw new IllegalArgumentException("Error: Negative number given to gcd: " + (m < 0 ? m : n));
+      if(m == 0)
          return n;
-      if(n.equals(BigInteger.ZERO))
+      if(n == 0)
          return m;
-      if(m.compareTo(n) > 0)
-         return gcd(n, m.remainder(n));
-      return gcd(m, n.remainder(m));
+      int twos = Long.numberOfTrailingZeros(m | n);
+      m >>= Long.numberOfTrailingZeros(m);
+      while(n != 0) {
+         n >>= Long.numberOfTrailingZeros(n);
+         if(m > n) {
+            long temp = m;
+            m = n;
+            n = temp;
+         }
+         n -= m;
+      }
+      return m << twos;
    }
 
    /**
-    * Finds the (positive) gcd of all numbers within the given list via the Euclidean algorithm.
+    * Finds the (positive) gcd of all numbers within the given list. Each number is first
+    * reduced modulo the running gcd, so that the running gcd stays small, and the
+    * computation stops as soon as the running gcd reaches 1.
     * @param nums the list of numbers whose gcd is to be computed.
     * @return the gcd of the given list of integers.
     */
@@ -127,7 +324,9 @@ public class Functions {
          throw new IllegalArgumentException("Error: cannot find the gcd of an empty list.");
       BigInteger gcd = BigInteger.ZERO;
       for(BigInteger num : nums) {
-         gcd = gcd(num, gcd);
+         gcd = gcd.signum() == 0 ? num.abs() : gcd(gcd, num.mod(gcd));
+         if(gcd.equals(BigInteger.ONE))
+            break;
       }
       return gcd;
    }
@@ -136,25 +335,51 @@ public class Functions {
     * Finds the (positive) lcm of the two given numbers.
     * @param m one of the numbers whose lcm is to be computed.
     * @param n one of the numbers whose lcm is to be computed.
-    * @return the lcm of the two given integers.
+    * @return the lcm of the two given integers, or 0 if either is 0.
     */
    public static BigInteger lcm(BigInteger m, BigInteger n) {
-      return m.multiply(n).divide(gcd(m, n));
+      if(m.signum() == 0 || n.signum() == 0)
+         return BigInteger.ZERO;
+      return m.divide(gcd(m, n)).multiply(n).abs();
    }
 
    /**
-    * Finds the (positive) lcm of all numbers within the given list.
+    * Finds the (positive) lcm of all numbers within the given list. The lcm is combined
+    * over a balanced tree, so that the numbers multiplied at each level are of similar size.
     * @param nums the list of numbers whose lcm is to be computed.
     * @return the lcm of the given list of integers.
     */
    public static BigInteger lcm(List<BigInteger> nums) {
       if(nums.size() == 0)
-         throw new IllegalArgumentException("Error: cannot find the gcd of an empty list.");
-      BigInteger lcm = BigInteger.ONE;
-      for(BigInteger num : nums) {
-         lcm = lcm(num, lcm);
+         throw new IllegalArgumentException("Error: cannot find the lcm of an empty list.");
+      List<BigInteger> level = new ArrayList<>(nums);
+      while(level.size() > 1) {
+         List<BigInteger> next = new ArrayList<>((level.size() + 1) / 2);
+         for(int i = 0; i + 1 < level.size(); i += 2)
+            next.add(lcm(level.get(i), level.get(i + 1)));
+         if(level.size() % 2 == 1)
+            next.add(level.get(level.size() - 1));
+         level = next;
       }
-      return lcm;
+      return level.get(0).abs();
+   }
+
+   /**
+    * Determines if the given non-negative number is congruent to a residue in each of the
+    * given tables, modulo the corresponding small moduli.
+    * @param number the number to be checked.
+    * @param residues the tables of residues, indexed by the number modulo each of the moduli.
+    * @return whether the number passes every table.
+    */
+   private static boolean hasResidues(BigInteger number, boolean[][] residues) {
+      if(!residues[0][number.intValue() & 63])
+         return false;
+      int rem = number.bitLength() < 63 ? (int) (number.longValue() % RESIDUE_MODULUS)
+              : number.remainder(BIG_RESIDUE_MODULUS).intValue();
+      for(int i = 1; i < RESIDUE_MODULI.length; i++)
+         if(!residues[i][rem % RESIDUE_MODULI[i]])
+            return false;
+      return true;
    }
 
    //-------------------------------------------------------------------------------------------------
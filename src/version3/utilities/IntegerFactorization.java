@@ -0,0 +1,524 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Class containing static methods to find the prime factorization of an integer, and
+ * from it all of the integer's divisors. Small prime factors are removed by trial
+ * division, after which the remaining cofactor is split until every factor is prime.
+ * Cofactors are split by a pipeline of methods tried in turn: a check for perfect powers
+ * (which the quadratic sieve cannot split), a bounded run of Pollard's
+ * rho algorithm (with Brent's cycle detection) for small factors, then the elliptic curve
+ * method for medium-size factors, then the self-initializing quadratic sieve for balanced
+ * factors of large integers, then an unbounded run of Pollard's rho as a fallback.
+ * @author Nathan Harbison
+ */
+public class IntegerFactorization {
+   /** The bound below which all prime factors are found by trial division. */
+   private static final int TRIAL_LIMIT = 1 << 10;
+   /** The number of steps between each gcd computation in Pollard's rho algorithm. */
+   private static final int RHO_BATCH = 128;
+   /** The largest cycle length searched by the first, bounded run of Pollard's rho algorithm. */
+   private static final long RHO_RANGE_LIMIT = 1L << 16;
+   /**
+    * The methods tried in turn to split a composite integer of at least 62 bits, each of
+    * which either finds a nontrivial divisor or gives up. The last must always succeed.
+    */
+   private static final List<Function<BigInteger, Optional<BigInteger>>> SPLITTERS = List.of(
+           IntegerFactorization::perfectPowerRoot,
+           num -> pollardBrent(num, RHO_RANGE_LIMIT),
+           num -> EllipticCurveMethod.findDivisor(num, ecmDigits(num)),
+           QuadraticSieve::findDivisor,
+           num -> pollardBrent(num, Long.MAX_VALUE));
+
+   // ------------------------------------------------------------------------------
+   // Factorization and divisors
+
+   /**
+    * Finds the prime factorization of the given integer, as a map from each prime
+    * factor to its multiplicity. The sign of the integer is ignored, and both 0 and
+    * 1 have an empty factorization.
+    * @param num the integer to be factored.
+    * @return a map of each prime factor of the integer to its multiplicity, in increasing order.
+    */
+   public static SortedMap<BigInteger, Integer> factor(BigInteger num) {
+      SortedMap<BigInteger, Integer> factors = new TreeMap<>();
+      num = num.abs();
+      if(num.signum() == 0)
+         return factors;
+      if(isPrime(num)) { // most integers met in practice are prime, so avoid trial division
+         factors.put(num, 1);
+         return factors;
+      }
+
+      // remove small prime factors by trial division
+      for(int div : PrimeSieve.primesUpTo(TRIAL_LIMIT)) {
+         if(num.compareTo(BigInteger.ONE) <= 0)
+            break;
+         BigInteger bigDiv = BigInteger.valueOf(div);
+         int mult = 0;
+         BigInteger[] divRem = num.divideAndRemainder(bigDiv);
+         while(divRem[1].signum() == 0) {
+            num = divRem[0];
+            mult++;
+            divRem = num.divideAndRemainder(bigDiv);
+         }
+         if(mult > 0)
+            factors.put(bigDiv, mult);
+      }
+
+      if(num.compareTo(BigInteger.ONE) > 0)
+         factorInto(num, factors);
+      return factors;
+   }
+
+   /**
+    * Finds all positive divisors of the given integer, in increasing order.
+    * The sign of the integer is ignored, and 0 is considered to have no divisors.
+    * @param num the integer whose divisors are to be found.
+    * @return the divisors of the integer, in increasing order.
+    */
+   public static List<BigInteger> divisors(BigInteger num) {
+      if(num.signum() == 0)
+         return new ArrayList<>();
+      return divisors(factor(num));
+   }
+
+   /**
+    * Finds all positive divisors of the integer with the given prime factorization,
+    * in increasing order.
+    * @param factors a map of each prime factor of the integer to its multiplicity.
+    * @return the divisors of the integer, in increasing order.
+    */
+   public static List<BigInteger> divisors(Map<BigInteger, Integer> factors) {
+      List<BigInteger> divisors = new ArrayList<>();
+      divisors.add(BigInteger.ONE);
+      for(Map.Entry<BigInteger, Integer> factor : factors.entrySet()) {
+         int size = divisors.size();
+         BigInteger primePow = BigInteger.ONE;
+         for(int mult = 1; mult <= factor.getValue(); mult++) {
+            primePow = primePow.multiply(factor.getKey());
+            for(int i = 0; i < size; i++)
+               divisors.add(divisors.get(i).multiply(primePow));
+         }
+      }
+      Collections.sort(divisors);
+      return divisors;
+   }
+
+   /**
+    * Determines if the given integer is prime, via the Baillie-PSW test.
+    * @param num the integer to be tested.
+    * @return whether the integer is prime.
+    */
+   public static boolean isPrime(BigInteger num) {
+      return PrimalityTest.isPrime(num);
+   }
+
+   // ------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Fully factors the given integer greater than 1, adding its prime factors to
+    * the given factorization.
+    * @param num the integer to be factored.
+    * @param factors the factorization the prime factors are added to.
+    */
+   private static void factorInto(BigInteger num, SortedMap<BigInteger, Integer> factors) {
+      Deque<BigInteger> toFactor = new ArrayDeque<>();
+      toFactor.push(num);
+      while(!toFactor.isEmpty()) {
+         BigInteger composite = toFactor.pop();
+         if(isPrime(composite)) {
+            factors.merge(composite, 1, Integer::sum);
+            continue;
+         }
+         BigInteger divisor = findDivisor(composite);
+         toFactor.push(divisor);
+         toFactor.push(composite.divide(divisor));
+      }
+   }
+
+   /**
+    * Finds a nontrivial divisor of the given odd composite integer.
+    * @param num the composite integer to be split.
+    * @return a divisor of the integer strictly between 1 and the integer.
+    */
+   private static BigInteger findDivisor(BigInteger num) {
+      if(num.bitLength() < 62)
+         return BigInteger.valueOf(pollardBrent(num.longValue()));
+      for(Function<BigInteger, Optional<BigInteger>> splitter : SPLITTERS) {
+         Optional<BigInteger> divisor = splitter.apply(num);
+         if(divisor.isPresent())
+            return divisor.get();
+      }
+      throw new IllegalStateException("Failed to split " + num);
+   }
+
+   /**
+    * Determines the number of digits of the largest prime factor the elliptic curve method
+    * should target for the given integer before giving up. Integers small enough for the
+    * quadratic sieve only have factors with up to about 30% of their digits searched for,
+    * as the sieve finds larger factors faster, while other integers have factors with up
+    * to half their digits (and at least the smallest level of effort) searched for.
+    * @param num the composite integer to be split.
+    * @return the number of digits of the largest prime factor targeted.
+    */
+   private static int ecmDigits(BigInteger num) {
+      int digits = num.toString().length();
+      if(digits >= QuadraticSieve.MIN_DIGITS && digits <= QuadraticSieve.MAX_DIGITS)
+         return digits * 3 / 10;
+      return Math.max(digits / 2, EllipticCurveMethod.FIRST_LEVEL_DIGITS);
+   }
+
+   /**
+    * Determines if the given integer is a perfect power b^k for some k > 1.
+    * @param num the integer to be checked, greater than 1.
+    * @return the base b for the smallest such k, or nothing if the integer is not a perfect power.
+    */
+   private static Optional<BigInteger> perfectPowerRoot(BigInteger num) {
+      for(int k = 2; k < num.bitLength(); k = BigInteger.valueOf(k).nextProbablePrime().intValue()) {
+         if(Functions.isNthPower(num, k))
+            return Optional.of(Functions.nthRoot(num, k));
+      }
+      return Optional.empty();
+   }
+
+   /**
+    * Attempts to find a nontrivial divisor of the given odd composite integer of at least
+    * 62 bits via Pollard's rho algorithm, using Montgomery multiplication where it fits in
+    * two words.
+    * @param num the composite integer to be split.
+    * @param maxRange the largest cycle length searched before giving up.
+    * @return a divisor of the integer strictly between 1 and the integer, or nothing if
+    * none was found within the given range.
+    */
+   private static Optional<BigInteger> pollardBrent(BigInteger num, long maxRange) {
+      if(num.bitLength() < 126)
+         return new WideMontgomery(num).pollardBrent(maxRange);
+      return bigPollardBrent(num, maxRange);
+   }
+
+   /**
+    * Finds a nontrivial divisor of the given odd composite integer via Pollard's rho
+    * algorithm with Brent's cycle detection, iterating x -> x^2 + c and batching the
+    * differences into a single gcd computation. If a choice of c fails, the next is tried.
+    * @param num the composite integer to be split.
+    * @param maxRange the largest cycle length searched before giving up.
+    * @return a divisor of the integer strictly between 1 and the integer, or nothing if
+    * none was found within the given range.
+    */
+   private static Optional<BigInteger> bigPollardBrent(BigInteger num, long maxRange) {
+      for(long c = 1; ; c++) {
+         BigInteger bigC = BigInteger.valueOf(c);
+         BigInteger x = BigInteger.TWO, y = x, ys = x, prod = BigInteger.ONE, gcd = BigInteger.ONE;
+         for(long range = 1; gcd.equals(BigInteger.ONE); range *= 2) {
+            if(range > maxRange)
+               return Optional.empty();
+            x = y;
+            for(long i = 0; i < range; i++)
+               y = y.multiply(y).add(bigC).mod(num);
+            for(long k = 0; k < range && gcd.equals(BigInteger.ONE); k += RHO_BATCH) {
+               ys = y;
+               for(long i = 0; i < Math.min(RHO_BATCH, range - k); i++) {
+                  y = y.multiply(y).add(bigC).mod(num);
+                  prod = prod.multiply(x.subtract(y).abs()).mod(num);
+               }
+               gcd = prod.gcd(num);
+            }
+         }
+
+         if(gcd.equals(num)) { // batch overshot - backtrack one step at a time
+            do {
+               ys = ys.multiply(ys).add(bigC).mod(num);
+               gcd = x.subtract(ys).abs().gcd(num);
+            } while(gcd.equals(BigInteger.ONE));
+         }
+         if(!gcd.equals(num))
+            return Optional.of(gcd);
+      }
+   }
+
+   /**
+    * Finds a nontrivial divisor of the given odd composite integer less than 2^62 via
+    * Pollard's rho algorithm with Brent's cycle detection, using Montgomery multiplication
+    * so that only primitive arithmetic is needed.
+    * @param num the composite integer to be split.
+    * @return a divisor of the integer strictly between 1 and the integer.
+    */
+   private static long pollardBrent(long num) {
+      long negInv = montgomeryNegInverse(num);
+      for(long c = 1; ; c++) {
+         long x = 2, y = x, ys = x, prod = 1, gcd = 1;
+         for(long range = 1; gcd == 1; range *= 2) {
+            x = y;
+            for(long i = 0; i < range; i++)
+               y = rhoStep(y, c, num, negInv);
+            for(long k = 0; k < range && gcd == 1; k += RHO_BATCH) {
+               ys = y;
+               for(long i = 0; i < Math.min(RHO_BATCH, range - k); i++) {
+                  y = rhoStep(y, c, num, negInv);
+                  prod = montgomeryMultiply(prod, Math.abs(x - y), num, negInv);
+               }
+               gcd = Functions.gcd(prod, num);
+            }
+         }
+
+         if(gcd == num) { // batch overshot - backtrack one step at a time
+            do {
+               ys = rhoStep(ys, c, num, negInv);
+               gcd = Functions.gcd(Math.abs(x - ys), num);
+            } while(gcd == 1);
+         }
+         if(gcd != num)
+            return gcd;
+      }
+   }
+
+   /**
+    * Computes a single step x -> x^2 + c of Pollard's rho algorithm in Montgomery form.
+    * @param x the current value, less than num.
+    * @param c the constant added at each step.
+    * @param num the (odd) modulus.
+    * @param negInv the Montgomery inverse of the modulus.
+    * @return the next value, less than num.
+    */
+   private static long rhoStep(long x, long c, long num, long negInv) {
+      long next = montgomeryMultiply(x, x, num, negInv) + c;
+      return next >= num ? next - num : next;
+   }
+
+   /**
+    * Computes -num^-1 modulo 2^64 via Newton's method, for Montgomery multiplication.
+    * @param num the odd modulus.
+    * @return the negated inverse of num modulo 2^64.
+    */
+   private static long montgomeryNegInverse(long num) {
+      long inv = num; // correct to 3 bits, doubling with each iteration
+      for(int i = 0; i < 5; i++)
+         inv *= 2 - num * inv;
+      return -inv;
+   }
+
+   /**
+    * Computes a * b * 2^-64 modulo num, for an odd modulus less than 2^62.
+    * @param a the first factor, less than num.
+    * @param b the second factor, less than num.
+    * @param num the modulus.
+    * @param negInv the Montgomery inverse of the modulus.
+    * @return the Montgomery product of a and b, less than num.
+    */
+   private static long montgomeryMultiply(long a, long b, long num, long negInv) {
+      long high = Math.multiplyHigh(a, b), low = a * b;
+      long m = low * negInv;
+      // unsigned high word of m * num, where m is treated as unsigned
+      long mNumHigh = Math.multiplyHigh(m, num) + ((m >> 63) & num);
+      long result = high + mNumHigh + (low != 0 ? 1 : 0);
+      return result >= num ? result - num : result;
+   }
+
+   /**
+    * Computes the high word of the unsigned 128-bit product of the two given words.
+    * @param x the first factor, treated as unsigned.
+    * @param y the second factor, treated as unsigned.
+    * @return the high 64 bits of the unsigned product of x and y.
+    */
+   private static long unsignedMultiplyHigh(long x, long y) {
+      return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+   }
+
+   /**
+    * Class performing Montgomery arithmetic modulo an odd integer less than 2^126, with
+    * each residue stored in two words, so that Pollard's rho algorithm can be run on
+    * integers too large for a single {@code long} without creating any BigIntegers
+    * outside of the occasional gcd computation.
+    */
+   private static class WideMontgomery {
+      /** The low and high words of the modulus. */
+      private final long num0, num1;
+      /** The Montgomery inverse of the modulus, -num^-1 modulo 2^64. */
+      private final long negInv;
+      /** The modulus as a BigInteger, for gcd computations. */
+      private final BigInteger num;
+      /** The low and high words of the result of the last operation. */
+      private long res0, res1;
+      /** The three-word accumulator used during multiplication. */
+      private long acc0, acc1, acc2;
+
+      /**
+       * Instantiates Montgomery arithmetic modulo the given odd integer.
+       * @param num the modulus, less than 2^126.
+       */
+      private WideMontgomery(BigInteger num) {
+         this.num = num;
+         this.num0 = num.longValue();
+         this.num1 = num.shiftRight(64).longValue();
+         this.negInv = montgomeryNegInverse(this.num0);
+      }
+
+      /**
+       * Finds a nontrivial divisor of the (odd composite) modulus via Pollard's rho
+       * algorithm with Brent's cycle detection.
+       * @param maxRange the largest cycle length searched before giving up.
+       * @return a divisor of the modulus strictly between 1 and the modulus, or nothing
+       * if none was found within the given range.
+       */
+      private Optional<BigInteger> pollardBrent(long maxRange) {
+         for(long c = 1; ; c++) {
+            long x0 = 2, x1 = 0, y0 = x0, y1 = x1, ys0 = x0, ys1 = x1, prod0 = 1, prod1 = 0;
+            BigInteger gcd = BigInteger.ONE;
+            for(long range = 1; gcd.equals(BigInteger.ONE); range *= 2) {
+               if(range > maxRange)
+                  return Optional.empty();
+               x0 = y0;
+               x1 = y1;
+               for(long i = 0; i < range; i++) {
+                  rhoStep(y0, y1, c);
+                  y0 = this.res0;
+                  y1 = this.res1;
+               }
+               for(long k = 0; k < range && gcd.equals(BigInteger.ONE); k += RHO_BATCH) {
+                  ys0 = y0;
+                  ys1 = y1;
+                  for(long i = 0; i < Math.min(RHO_BATCH, range - k); i++) {
+                     rhoStep(y0, y1, c);
+                     y0 = this.res0;
+                     y1 = this.res1;
+                     absDifference(x0, x1, y0, y1);
+                     multiply(prod0, prod1, this.res0, this.res1);
+                     prod0 = this.res0;
+                     prod1 = this.res1;
+                  }
+                  gcd = toBigInteger(prod0, prod1).gcd(this.num);
+               }
+            }
+
+            if(gcd.equals(this.num)) { // batch overshot - backtrack one step at a time
+               do {
+                  rhoStep(ys0, ys1, c);
+                  ys0 = this.res0;
+                  ys1 = this.res1;
+                  absDifference(x0, x1, ys0, ys1);
+                  gcd = toBigInteger(this.res0, this.res1).gcd(this.num);
+               } while(gcd.equals(BigInteger.ONE));
+            }
+            if(!gcd.equals(this.num))
+               return Optional.of(gcd);
+         }
+      }
+
+      /**
+       * Computes a single step x -> x^2 + c of Pollard's rho algorithm in Montgomery form,
+       * storing the result.
+       * @param x0 the low word of the current value.
+       * @param x1 the high word of the current value.
+       * @param c the constant added at each step.
+       */
+      private void rhoStep(long x0, long x1, long c) {
+         multiply(x0, x1, x0, x1);
+         long sum0 = this.res0 + c;
+         long sum1 = this.res1 + (Long.compareUnsigned(sum0, c) < 0 ? 1 : 0);
+         reduceOnce(sum0, sum1);
+      }
+
+      /**
+       * Computes the Montgomery product a * b * 2^-128 modulo the modulus, storing the result.
+       * @param a0 the low word of the first factor.
+       * @param a1 the high word of the first factor.
+       * @param b0 the low word of the second factor.
+       * @param b1 the high word of the second factor.
+       */
+      private void multiply(long a0, long a1, long b0, long b1) {
+         this.acc0 = this.acc1 = this.acc2 = 0;
+         for(int i = 0; i < 2; i++) {
+            addProduct(i == 0 ? a0 : a1, b0, b1);
+            addProduct(this.acc0 * this.negInv, this.num0, this.num1);
+            // the lowest word is now zero, so shift it out
+            this.acc0 = this.acc1;
+            this.acc1 = this.acc2;
+            this.acc2 = 0;
+         }
+         reduceOnce(this.acc0, this.acc1);
+      }
+
+      /**
+       * Adds the product of a word and a two-word value to the accumulator.
+       * @param x the single word factor.
+       * @param y0 the low word of the two-word factor.
+       * @param y1 the high word of the two-word factor.
+       */
+      private void addProduct(long x, long y0, long y1) {
+         long low = x * y0, high = unsignedMultiplyHigh(x, y0);
+         long sum = this.acc0 + low;
+         long carry = Long.compareUnsigned(sum, low) < 0 ? 1 : 0;
+         this.acc0 = sum;
+
+         // the high word of a product is at most 2^64 - 2, so adding the carry cannot overflow
+         long addend = high + carry;
+         sum = this.acc1 + addend;
+         carry = Long.compareUnsigned(sum, addend) < 0 ? 1 : 0;
+         long lowNext = x * y1;
+         long sumNext = sum + lowNext;
+         carry += Long.compareUnsigned(sumNext, lowNext) < 0 ? 1 : 0;
+         this.acc1 = sumNext;
+         this.acc2 += unsignedMultiplyHigh(x, y1) + carry;
+      }
+
+      /**
+       * Stores the absolute difference of the two given values.
+       * @param x0 the low word of the first value.
+       * @param x1 the high word of the first value.
+       * @param y0 the low word of the second value.
+       * @param y1 the high word of the second value.
+       */
+      private void absDifference(long x0, long x1, long y0, long y1) {
+         int cmp = Long.compareUnsigned(x1, y1);
+         if(cmp < 0 || (cmp == 0 && Long.compareUnsigned(x0, y0) < 0))
+            subtract(y0, y1, x0, x1);
+         else
+            subtract(x0, x1, y0, y1);
+      }
+
+      /**
+       * Stores the given value less than twice the modulus, reduced modulo the modulus.
+       * @param x0 the low word of the value.
+       * @param x1 the high word of the value.
+       */
+      private void reduceOnce(long x0, long x1) {
+         int cmp = Long.compareUnsigned(x1, this.num1);
+         if(cmp > 0 || (cmp == 0 && Long.compareUnsigned(x0, this.num0) >= 0)) {
+            subtract(x0, x1, this.num0, this.num1);
+         } else {
+            this.res0 = x0;
+            this.res1 = x1;
+         }
+      }
+
+      /**
+       * Stores the difference of the two given values, where the first is the larger.
+       * @param x0 the low word of the first value.
+       * @param x1 the high word of the first value.
+       * @param y0 the low word of the second value.
+       * @param y1 the high word of the second value.
+       */
+      private void subtract(long x0, long x1, long y0, long y1) {
+         this.res0 = x0 - y0;
+         this.res1 = x1 - y1 - (Long.compareUnsigned(x0, y0) < 0 ? 1 : 0);
+      }
+
+      /**
+       * Converts the given two-word value to a BigInteger.
+       * @param x0 the low word of the value.
+       * @param x1 the high word of the value.
+       * @return the value as a BigInteger.
+       */
+      private static BigInteger toBigInteger(long x0, long x1) {
+         BigInteger low = BigInteger.valueOf(x0 & Long.MAX_VALUE);
+         if(x0 < 0)
+            low = low.setBit(63);
+         return BigInteger.valueOf(x1).shiftLeft(64).or(low);
+      }
+   }
+}
@@ -0,0 +1,341 @@
+package version3.utilities;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Class containing the reduction of lattice bases via the LLL algorithm, which turns a basis
+ * of integer vectors into one of short, nearly orthogonal vectors generating the same lattice.
+ * Reduction is first attempted with the Gram-Schmidt coefficients kept as doubles, but
+ * recomputed from the exact Gram matrix of the basis at each step (as in Nguyen and Stehle's
+ * L^2 algorithm), falling back on the exact integral version of the algorithm if the
+ * floating point precision proves insufficient.
+ * @author Nathan Harbison
+ */
+public class Lattice {
+   /** The Lovasz constant of the reduction, as a fraction DELTA_NUM / DELTA_DENOM. */
+   private static final int DELTA_NUM = 99, DELTA_DENOM = 100;
+   /** The size reduction bound used with floating point coefficients, slightly above 1/2. */
+   private static final double ETA = 0.51;
+   /** The number of passes of size reduction of a vector after which precision is deemed lost. */
+   private static final int MAX_SIZE_PASSES = 32;
+   /** The number of swaps per dimension after which precision is deemed lost. */
+   private static final int MAX_SWAPS = 1 << 16;
+
+   /**
+    * Reduces the given basis of a lattice via the LLL algorithm, with delta = 0.99.
+    * @param basis the linearly independent vectors of the basis, all of the same length.
+    * @return a new reduced basis of the same lattice.
+    */
+   public static BigInteger[][] reduce(BigInteger[][] basis) {
+      BigInteger[][] reduced = copy(basis);
+      if(!reduceFloating(reduced)) {
+         reduced = copy(basis);
+         reduceExact(reduced);
+      }
+      return reduced;
+   }
+
+   /**
+    * Finds the number of leading vectors of the basis that span every lattice vector of at
+    * most the given length: if the Gram-Schmidt orthogonalizations of the vectors after the
+    * first k are all longer than the bound, any lattice vector using one of them is too.
+    * @param basis the linearly independent vectors of the basis.
+    * @param boundSquared the square of the bound on the length of the vectors.
+    * @return the smallest k such that all the vectors after the first k have Gram-Schmidt
+    * orthogonalizations of squared length above the bound.
+    */
+   public static int shortPrefix(BigInteger[][] basis, BigInteger boundSquared) {
+      // the squared length of the i-th orthogonalization is d_i / d_(i-1), where d_i is the
+      // i-th leading principal minor of the Gram matrix
+      BigInteger[] minors = gramMinors(basis);
+      int k = basis.length;
+      while(k > 0 && minors[k].compareTo(boundSquared.multiply(minors[k - 1])) > 0)
+         k--;
+      return k;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Floating point reduction
+
+   /**
+    * Reduces the given basis in place via LLL reduction with floating point Gram-Schmidt
+    * coefficients, computed from the exact Gram matrix, which is updated with each change.
+    * @param basis the linearly independent vectors of the basis.
+    * @return whether the reduction finished, as opposed to stopping due to lost precision.
+    */
+   private static boolean reduceFloating(BigInteger[][] basis) {
+      int n = basis.length;
+      BigInteger[][] gram = new BigInteger[n][n];
+      for(int i = 0; i < n; i++)
+         for(int j = 0; j <= i; j++)
+            gram[i][j] = gram[j][i] = dot(basis[i], basis[j]);
+      // r[i][j] = <b_i, b*_j> and mu[i][j] = r[i][j] / r[j][j], for j <= i
+      double[][] r = new double[n][n], mu = new double[n][n];
+      r[0][0] = gram[0][0].doubleValue();
+      if(!(r[0][0] > 0 && r[0][0] < Double.POSITIVE_INFINITY))
+         return false;
+
+      double delta = (double) DELTA_NUM / DELTA_DENOM;
+      long swaps = 0;
+      for(int k = 1; k < n; ) {
+         if(!sizeReduce(basis, gram, r, mu, k))
+            return false;
+         if(delta * r[k - 1][k - 1] > r[k][k] + mu[k][k - 1] * mu[k][k - 1] * r[k - 1][k - 1]) {
+            swap(basis, gram, k);
+            if(++swaps > (long) MAX_SWAPS * n)
+               return false;
+            if(k == 1)
+               r[0][0] = gram[0][0].doubleValue();
+            else
+               k--;
+         } else
+            k++;
+      }
+      return true;
+   }
+
+   /**
+    * Size-reduces the k-th vector of the basis against the previous ones, so that each of its
+    * Gram-Schmidt coefficients is at most ETA in magnitude, and computes those coefficients.
+    * @param basis the vectors of the basis.
+    * @param gram the exact Gram matrix of the basis.
+    * @param r the products of the vectors with the orthogonalizations.
+    * @param mu the Gram-Schmidt coefficients.
+    * @param k the index of the vector being reduced.
+    * @return whether the vector was reduced, as opposed to the coefficients not converging
+    * or not being finite.
+    */
+   private static boolean sizeReduce(BigInteger[][] basis, BigInteger[][] gram, double[][] r, double[][] mu,
+                                     int k) {
+      for(int pass = 0; pass < MAX_SIZE_PASSES; pass++) {
+         boolean reduced = true;
+         for(int j = 0; j <= k; j++) {
+            double dot = gram[k][j].doubleValue();
+            for(int m = 0; m < j; m++)
+               dot -= mu[j][m] * r[k][m];
+            r[k][j] = dot;
+            if(j < k) {
+               mu[k][j] = dot / r[j][j];
+               // a lost or overflowed value means the precision has run out
+               if(!(r[j][j] > 0) || !Double.isFinite(mu[k][j]))
+                  return false;
+               reduced &= Math.abs(mu[k][j]) <= ETA;
+            }
+         }
+         // the squared length r[k][k] may still be lost to cancellation, but is then far
+         // smaller than that of the last vector, so the vectors are swapped regardless
+         if(reduced)
+            return Double.isFinite(r[k][k]);
+
+         // subtract the nearest integer multiples of the previous vectors, updating the
+         // coefficients of those not yet reached to match
+         for(int j = k - 1; j >= 0; j--) {
+            double rounded = Math.rint(mu[k][j]);
+            if(rounded == 0)
+               continue;
+            BigInteger mult = new BigDecimal(rounded).toBigInteger();
+            for(int m = 0; m < j; m++)
+               mu[k][m] -= rounded * mu[j][m];
+            subtractMultiple(basis, gram, k, j, mult);
+         }
+      }
+      return false;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Exact reduction
+
+   /**
+    * Reduces the given basis in place via the integral LLL algorithm (Cohen's algorithm
+    * 2.6.7), which keeps the Gram-Schmidt coefficients as the integers
+    * lambda[i][j] = d_(j+1) * mu[i][j], where d_i is the i-th leading principal minor of the
+    * Gram matrix.
+    * @param basis the linearly independent vectors of the basis.
+    */
+   private static void reduceExact(BigInteger[][] basis) {
+      int n = basis.length;
+      // d[i + 1] is the minor for the first i + 1 vectors, and d[0] = 1
+      BigInteger[] d = new BigInteger[n + 1];
+      BigInteger[][] lambda = new BigInteger[n][n];
+      d[0] = BigInteger.ONE;
+      d[1] = dot(basis[0], basis[0]);
+      BigInteger deltaNum = BigInteger.valueOf(DELTA_NUM), deltaDenom = BigInteger.valueOf(DELTA_DENOM);
+      int computed = 0;
+      for(int k = 1; k < n; ) {
+         if(k > computed) {
+            // incremental Gram-Schmidt for the new vector
+            computed = k;
+            for(int j = 0; j <= k; j++) {
+               BigInteger u = dot(basis[k], basis[j]);
+               for(int i = 0; i < j; i++)
+                  u = d[i + 1].multiply(u).subtract(lambda[k][i].multiply(lambda[j][i])).divide(d[i]);
+               if(j < k)
+                  lambda[k][j] = u;
+               else
+                  d[k + 1] = u;
+            }
+         }
+
+         reduceExact(basis, lambda, d, k, k - 1);
+         // the Lovasz condition d_k * d_(k-2) >= delta * d_(k-1)^2 - lambda^2, in terms of
+         // the minors of the first k + 1, k - 1 and k vectors
+         BigInteger lhs = deltaDenom.multiply(d[k + 1]).multiply(d[k - 1]);
+         BigInteger rhs = deltaNum.multiply(d[k].pow(2)).subtract(deltaDenom.multiply(lambda[k][k - 1].pow(2)));
+         if(lhs.compareTo(rhs) < 0) {
+            swapExact(basis, lambda, d, k, computed);
+            k = Math.max(1, k - 1);
+         } else {
+            for(int l = k - 2; l >= 0; l--)
+               reduceExact(basis, lambda, d, k, l);
+            k++;
+         }
+      }
+   }
+
+   /**
+    * Size-reduces the k-th vector of the basis against the l-th in the integral algorithm.
+    * @param basis the vectors of the basis.
+    * @param lambda the integral Gram-Schmidt coefficients.
+    * @param d the leading principal minors of the Gram matrix.
+    * @param k the index of the vector being reduced.
+    * @param l the index of the vector reduced against.
+    */
+   private static void reduceExact(BigInteger[][] basis, BigInteger[][] lambda, BigInteger[] d, int k, int l) {
+      if(lambda[k][l].shiftLeft(1).abs().compareTo(d[l + 1]) <= 0)
+         return;
+      // the nearest integer to lambda / d, as floor((2 * lambda + d) / (2 * d))
+      BigInteger twoD = d[l + 1].shiftLeft(1);
+      BigInteger[] quotRem = lambda[k][l].shiftLeft(1).add(d[l + 1]).divideAndRemainder(twoD);
+      BigInteger mult = quotRem[1].signum() < 0 ? quotRem[0].subtract(BigInteger.ONE) : quotRem[0];
+      for(int i = 0; i < basis[k].length; i++)
+         basis[k][i] = basis[k][i].subtract(mult.multiply(basis[l][i]));
+      lambda[k][l] = lambda[k][l].subtract(mult.multiply(d[l + 1]));
+      for(int i = 0; i < l; i++)
+         lambda[k][i] = lambda[k][i].subtract(mult.multiply(lambda[l][i]));
+   }
+
+   /**
+    * Swaps the k-th vector of the basis with the previous one in the integral algorithm,
+    * updating the Gram-Schmidt coefficients and minors.
+    * @param basis the vectors of the basis.
+    * @param lambda the integral Gram-Schmidt coefficients.
+    * @param d the leading principal minors of the Gram matrix.
+    * @param k the index of the vector being swapped.
+    * @param computed the index of the last vector whose coefficients have been computed.
+    */
+   private static void swapExact(BigInteger[][] basis, BigInteger[][] lambda, BigInteger[] d, int k, int computed) {
+      BigInteger[] temp = basis[k];
+      basis[k] = basis[k - 1];
+      basis[k - 1] = temp;
+      for(int j = 0; j < k - 1; j++) {
+         BigInteger coeff = lambda[k][j];
+         lambda[k][j] = lambda[k - 1][j];
+         lambda[k - 1][j] = coeff;
+      }
+      BigInteger lam = lambda[k][k - 1];
+      BigInteger newMinor = d[k - 1].multiply(d[k + 1]).add(lam.pow(2)).divide(d[k]);
+      for(int i = k + 1; i <= computed; i++) {
+         BigInteger coeff = lambda[i][k];
+         lambda[i][k] = d[k + 1].multiply(lambda[i][k - 1]).subtract(lam.multiply(coeff)).divide(d[k]);
+         lambda[i][k - 1] = newMinor.multiply(coeff).add(lam.multiply(lambda[i][k])).divide(d[k + 1]);
+      }
+      d[k] = newMinor;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Subtracts a multiple of the j-th vector of the basis from the k-th, updating the
+    * Gram matrix to match.
+    * @param basis the vectors of the basis.
+    * @param gram the Gram matrix of the basis.
+    * @param k the index of the vector being changed.
+    * @param j the index of the vector being subtracted.
+    * @param mult the multiple of the vector being subtracted.
+    */
+   private static void subtractMultiple(BigInteger[][] basis, BigInteger[][] gram, int k, int j, BigInteger mult) {
+      for(int i = 0; i < basis[k].length; i++)
+         basis[k][i] = basis[k][i].subtract(mult.multiply(basis[j][i]));
+      // <b_k - m b_j, b_k - m b_j> = <b_k, b_k> - 2m <b_k, b_j> + m^2 <b_j, b_j>
+      gram[k][k] = gram[k][k].subtract(mult.multiply(gram[k][j]).shiftLeft(1)).add(mult.pow(2).multiply(gram[j][j]));
+      for(int i = 0; i < gram.length; i++) {
+         if(i != k) {
+            gram[k][i] = gram[k][i].subtract(mult.multiply(gram[j][i]));
+            gram[i][k] = gram[k][i];
+         }
+      }
+   }
+
+   /**
+    * Swaps the k-th vector of the basis with the previous one, along with their rows and
+    * columns of the Gram matrix.
+    * @param basis the vectors of the basis.
+    * @param gram the Gram matrix of the basis.
+    * @param k the index of the vector being swapped.
+    */
+   private static void swap(BigInteger[][] basis, BigInteger[][] gram, int k) {
+      BigInteger[] temp = basis[k];
+      basis[k] = basis[k - 1];
+      basis[k - 1] = temp;
+      temp = gram[k];
+      gram[k] = gram[k - 1];
+      gram[k - 1] = temp;
+      for(BigInteger[] row : gram) {
+         BigInteger entry = row[k];
+         row[k] = row[k - 1];
+         row[k - 1] = entry;
+      }
+   }
+
+   /**
+    * Finds the leading principal minors of the Gram matrix of the basis, via fraction-free
+    * Gaussian elimination (the Bareiss algorithm), whose pivots are exactly those minors.
+    * @param basis the linearly independent vectors of the basis.
+    * @return an array whose entry i is the minor for the first i vectors (1 for i = 0).
+    */
+   private static BigInteger[] gramMinors(BigInteger[][] basis) {
+      int n = basis.length;
+      BigInteger[][] matrix = new BigInteger[n][n];
+      for(int i = 0; i < n; i++)
+         for(int j = 0; j <= i; j++)
+            matrix[i][j] = matrix[j][i] = dot(basis[i], basis[j]);
+      BigInteger[] minors = new BigInteger[n + 1];
+      minors[0] = BigInteger.ONE;
+      for(int k = 0; k < n; k++) {
+         minors[k + 1] = matrix[k][k];
+         for(int i = k + 1; i < n; i++)
+            for(int j = k + 1; j < n; j++)
+               matrix[i][j] = matrix[k][k].multiply(matrix[i][j]).subtract(matrix[i][k].multiply(matrix[k][j]))
+                       .divide(minors[k]);
+      }
+      return minors;
+   }
+
+   /**
+    * Finds the dot product of two integer vectors.
+    * @param a one of the vectors.
+    * @param b the other vector, of the same length.
+    * @return the dot product of the vectors.
+    */
+   private static BigInteger dot(BigInteger[] a, BigInteger[] b) {
+      BigInteger sum = BigInteger.ZERO;
+      for(int i = 0; i < a.length; i++)
+         if(a[i].signum() != 0 && b[i].signum() != 0)
+            sum = sum.add(a[i].multiply(b[i]));
+      return sum;
+   }
+
+   /**
+    * Copies the given basis.
+    * @param basis the vectors of the basis.
+    * @return a copy of the basis, with new arrays for each vector.
+    */
+   private static BigInteger[][] copy(BigInteger[][] basis) {
+      BigInteger[][] copy = new BigInteger[basis.length][];
+      for(int i = 0; i < basis.length; i++)
+         copy[i] = basis[i].clone();
+      return copy;
+   }
+}
@@ -0,0 +1,534 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Class containing arithmetic on univariate polynomials over the integers modulo a prime p,
+ * i.e. over the finite field GF(p), and their factorization: square-free decomposition,
+ * distinct-degree factorization, and equal-degree factorization via the Cantor-Zassenhaus
+ * algorithm. Polynomials are stored as arrays of coefficients indexed by power, each in
+ * [0, p), with a non-zero last entry (so the zero polynomial is the empty array). The prime
+ * must be below 2^31, so that the product of two coefficients fits in a {@code long}, and
+ * products are reduced via Barrett reduction rather than division.
+ * @author Nathan Harbison
+ */
+public class ModularPolynomials {
+   /** The zero polynomial. */
+   private static final long[] ZERO = new long[0];
+   /** The polynomial x. */
+   private static final long[] X = {0, 1};
+
+   /**
+    * Reduces the given polynomial with integer coefficients modulo a prime.
+    * @param poly the polynomial to be reduced.
+    * @param p the prime modulus.
+    * @return the coefficients of the polynomial modulo p.
+    */
+   public static long[] reduce(Polynomial poly, long p) {
+      BigInteger mod = BigInteger.valueOf(p);
+      long[] reduced = new long[poly.degree() + 1];
+      for(int power = 0; power < reduced.length; power++)
+         reduced[power] = poly.getCoeff(power).mod(mod).longValue();
+      return trim(reduced);
+   }
+
+   /**
+    * Returns the degree of the given polynomial.
+    * @param poly the polynomial.
+    * @return the degree of the polynomial, or -1 for the zero polynomial.
+    */
+   public static int degree(long[] poly) {
+      return poly.length - 1;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Arithmetic
+
+   /**
+    * Subtracts one polynomial from another modulo p.
+    * @param a the polynomial being subtracted from.
+    * @param b the polynomial being subtracted.
+    * @param p the prime modulus.
+    * @return the difference a - b.
+    */
+   public static long[] subtract(long[] a, long[] b, long p) {
+      long[] diff = Arrays.copyOf(a, Math.max(a.length, b.length));
+      for(int i = 0; i < b.length; i++) {
+         diff[i] -= b[i];
+         if(diff[i] < 0)
+            diff[i] += p;
+      }
+      return trim(diff);
+   }
+
+   /**
+    * Multiplies two polynomials modulo p.
+    * @param a one of the polynomials.
+    * @param b the other polynomial.
+    * @param p the prime modulus.
+    * @return the product of the polynomials.
+    */
+   public static long[] multiply(long[] a, long[] b, long p) {
+      if(a.length == 0 || b.length == 0)
+         return ZERO;
+      long barrett = barrett(p);
+      long[] product = new long[a.length + b.length - 1];
+      for(int i = 0; i < a.length; i++) {
+         if(a[i] == 0)
+            continue;
+         for(int j = 0; j < b.length; j++)
+            product[i + j] = mod(product[i + j] + a[i] * b[j], p, barrett);
+      }
+      return product;
+   }
+
+   /**
+    * Divides one polynomial by another modulo p.
+    * @param a the dividend.
+    * @param b the non-zero divisor.
+    * @param p the prime modulus.
+    * @return an array of the quotient and the remainder.
+    * @throws ArithmeticException if the divisor is zero.
+    */
+   public static long[][] divide(long[] a, long[] b, long p) {
+      if(b.length == 0)
+         throw new ArithmeticException("Error: division by the zero polynomial");
+      if(a.length < b.length)
+         return new long[][] {ZERO, a};
+      long barrett = barrett(p);
+      long[] rem = a.clone();
+      long[] quot = new long[a.length - b.length + 1];
+      long leadInverse = b[b.length - 1] == 1 ? 1 : modInverse(b[b.length - 1], p);
+      for(int i = quot.length - 1; i >= 0; i--) {
+         long coeff = mod(rem[i + b.length - 1] * leadInverse, p, barrett);
+         quot[i] = coeff;
+         if(coeff == 0)
+            continue;
+         // subtract coeff * b, as adding (p - coeff) * b keeps every term non-negative
+         long negCoeff = p - coeff;
+         for(int j = 0; j < b.length - 1; j++)
+            rem[i + j] = mod(rem[i + j] + negCoeff * b[j], p, barrett);
+      }
+      return new long[][] {quot, trim(Arrays.copyOf(rem, b.length - 1))};
+   }
+
+   /**
+    * Finds the remainder of one polynomial divided by another modulo p.
+    * @param a the dividend.
+    * @param b the non-zero divisor.
+    * @param p the prime modulus.
+    * @return the remainder of the division.
+    */
+   public static long[] remainder(long[] a, long[] b, long p) {
+      return divide(a, b, p)[1];
+   }
+
+   /**
+    * Scales the given polynomial to have a leading coefficient of 1 modulo p.
+    * @param poly the polynomial.
+    * @param p the prime modulus.
+    * @return the monic polynomial, or zero for the zero polynomial.
+    */
+   public static long[] monic(long[] poly, long p) {
+      if(poly.length == 0 || poly[poly.length - 1] == 1)
+         return poly;
+      return scale(poly, modInverse(poly[poly.length - 1], p), p);
+   }
+
+   /**
+    * Computes the derivative of the given polynomial modulo p.
+    * @param poly the polynomial.
+    * @param p the prime modulus.
+    * @return the derivative of the polynomial.
+    */
+   public static long[] derivative(long[] poly, long p) {
+      if(poly.length <= 1)
+         return ZERO;
+      long[] derivative = new long[poly.length - 1];
+      for(int power = 1; power < poly.length; power++)
+         derivative[power - 1] = poly[power] * (power % p) % p;
+      return trim(derivative);
+   }
+
+   /**
+    * Raises a polynomial to a power modulo another polynomial and p, via repeated squaring.
+    * @param base the polynomial being raised to a power.
+    * @param exp the (non-negative) power.
+    * @param mod the non-zero polynomial modulus.
+    * @param p the prime modulus.
+    * @return base^exp modulo mod.
+    */
+   public static long[] powMod(long[] base, BigInteger exp, long[] mod, long p) {
+      long[] result = remainder(new long[] {1}, mod, p);
+      base = remainder(base, mod, p);
+      for(int bit = exp.bitLength() - 1; bit >= 0; bit--) {
+         result = remainder(multiply(result, result, p), mod, p);
+         if(exp.testBit(bit))
+            result = remainder(multiply(result, base, p), mod, p);
+      }
+      return result;
+   }
+
+   /**
+    * Finds the monic greatest common divisor of two polynomials modulo p.
+    * @param a one of the polynomials.
+    * @param b the other polynomial.
+    * @param p the prime modulus.
+    * @return the monic gcd of the polynomials, or zero if both are zero.
+    */
+   public static long[] gcd(long[] a, long[] b, long p) {
+      while(b.length != 0) {
+         long[] rem = remainder(a, b, p);
+         a = b;
+         b = rem;
+      }
+      return monic(a, p);
+   }
+
+   /**
+    * Finds the monic greatest common divisor g of two polynomials modulo p, along with
+    * polynomials s and t such that s * a + t * b = g, via the extended Euclidean algorithm.
+    * @param a one of the polynomials.
+    * @param b the other polynomial.
+    * @param p the prime modulus.
+    * @return an array of the gcd g and the coefficients s and t.
+    */
+   public static long[][] extendedGcd(long[] a, long[] b, long p) {
+      long[] s0 = {1}, s1 = ZERO, t0 = ZERO, t1 = {1};
+      while(b.length != 0) {
+         long[][] quotRem = divide(a, b, p);
+         long[] s2 = subtract(s0, multiply(quotRem[0], s1, p), p);
+         long[] t2 = subtract(t0, multiply(quotRem[0], t1, p), p);
+         a = b;
+         b = quotRem[1];
+         s0 = s1;
+         s1 = s2;
+         t0 = t1;
+         t1 = t2;
+      }
+      if(a.length == 0)
+         return new long[][] {ZERO, ZERO, ZERO};
+      long leadInverse = modInverse(a[a.length - 1], p);
+      return new long[][] {monic(a, p), scale(s0, leadInverse, p), scale(t0, leadInverse, p)};
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Factorization
+
+   /**
+    * Factors a polynomial modulo p into monic irreducible factors, by splitting it into
+    * square-free parts and then factoring each of those.
+    * @param poly the polynomial of degree at least 1.
+    * @param p the prime modulus.
+    * @return the monic irreducible factors of the polynomial, repeated by their
+    * multiplicities (so their product is the polynomial divided by its leading coefficient).
+    */
+   public static List<long[]> factor(long[] poly, long p) {
+      List<long[]> factors = new ArrayList<>();
+      List<long[]> parts = squareFreeDecomposition(monic(poly, p), p);
+      for(int multiplicity = 1; multiplicity <= parts.size(); multiplicity++) {
+         long[] part = parts.get(multiplicity - 1);
+         if(part.length <= 1)
+            continue;
+         for(long[] factor : factorSquareFree(part, p))
+            for(int i = 0; i < multiplicity; i++)
+               factors.add(factor);
+      }
+      return factors;
+   }
+
+   /**
+    * Splits a monic polynomial modulo p into square-free parts, so that
+    * f = a_1 * a_2^2 * ... * a_k^k for coprime square-free a_i. As in characteristic 0
+    * (Yun's algorithm), repeated factors are found via gcds with the derivative, except that
+    * factors whose multiplicity is divisible by p vanish in the derivative, and are left in
+    * a polynomial in x^p, which is a p-th power.
+    * @param poly the monic polynomial.
+    * @param p the prime modulus.
+    * @return the monic parts a_1, ..., a_k (possibly 1).
+    */
+   public static List<long[]> squareFreeDecomposition(long[] poly, long p) {
+      List<long[]> parts = new ArrayList<>();
+      if(poly.length <= 1)
+         return parts;
+      long[] repeated = gcd(poly, derivative(poly, p), p);
+      long[] rest = divide(poly, repeated, p)[0];
+      // rest holds each factor with a multiplicity, not divisible by p, of at least the
+      // current multiplicity once
+      for(int multiplicity = 1; rest.length > 1; multiplicity++) {
+         long[] next = gcd(rest, repeated, p);
+         parts.add(divide(rest, next, p)[0]);
+         repeated = divide(repeated, next, p)[0];
+         rest = next;
+      }
+      if(repeated.length > 1) {
+         // the remaining factor is g(x^p) = g(x)^p, as a^p = a for each coefficient a
+         long[] root = new long[(repeated.length - 1) / (int) p + 1];
+         for(int i = 0; i < root.length; i++)
+            root[i] = repeated[i * (int) p];
+         List<long[]> rootParts = squareFreeDecomposition(root, p);
+         for(int i = 0; i < rootParts.size(); i++) {
+            int multiplicity = (i + 1) * (int) p;
+            while(parts.size() < multiplicity)
+               parts.add(new long[] {1});
+            parts.set(multiplicity - 1, multiply(parts.get(multiplicity - 1), rootParts.get(i), p));
+         }
+      }
+      return parts;
+   }
+
+   /**
+    * Determines if the given polynomial has no repeated factors modulo p, i.e. if it is
+    * coprime to its derivative.
+    * @param poly the non-zero polynomial.
+    * @param p the prime modulus.
+    * @return whether the polynomial is square-free modulo p.
+    */
+   public static boolean isSquareFree(long[] poly, long p) {
+      long[] derivative = derivative(poly, p);
+      return derivative.length != 0 && gcd(poly, derivative, p).length == 1;
+   }
+
+   /**
+    * Splits a square-free polynomial modulo p into the products of its irreducible factors of
+    * each degree, using that the product of all monic irreducibles of degree dividing d is
+    * x^(p^d) - x, so the gcd with x^(p^d) - x picks out the factors of degree d in turn. Each
+    * power x^(p^d) is found from the last via the matrix of the Frobenius map a -> a^p.
+    * @param poly the square-free polynomial of degree at least 1.
+    * @param p the prime modulus.
+    * @return a list whose entry d - 1 is the monic product of the irreducible factors of
+    * degree d (1 if there are none), up to the largest degree of a factor.
+    */
+   public static List<long[]> distinctDegree(long[] poly, long p) {
+      long[] monic = monic(poly, p), rest = monic;
+      List<long[]> products = new ArrayList<>();
+      long[][] frobenius = frobeniusMatrix(monic, p);
+      long[] power = remainder(X, monic, p);
+      for(int d = 1; 2 * d <= degree(rest); d++) {
+         // x^(p^d) modulo the polynomial, which the remaining factors divide
+         power = applyFrobenius(power, frobenius, p);
+         long[] product = gcd(rest, subtract(power, X, p), p);
+         products.add(product);
+         if(product.length > 1)
+            rest = divide(rest, product, p)[0];
+      }
+      // any remaining factor has no factors of degree at most half of its own
+      if(rest.length > 1) {
+         while(products.size() < degree(rest) - 1)
+            products.add(new long[] {1});
+         products.add(rest);
+      }
+      return products;
+   }
+
+   /**
+    * Finds the degrees of the irreducible factors of a square-free polynomial modulo p.
+    * @param poly the square-free polynomial of degree at least 1.
+    * @param p the prime modulus.
+    * @return the degrees of the irreducible factors, in increasing order.
+    */
+   public static List<Integer> factorDegrees(long[] poly, long p) {
+      List<Integer> degrees = new ArrayList<>();
+      List<long[]> products = distinctDegree(poly, p);
+      for(int d = 1; d <= products.size(); d++)
+         for(int i = 0; i < degree(products.get(d - 1)) / d; i++)
+            degrees.add(d);
+      return degrees;
+   }
+
+   /**
+    * Factors a square-free polynomial modulo p into monic irreducible factors, via
+    * distinct-degree factorization followed by the Cantor-Zassenhaus algorithm.
+    * @param poly the square-free polynomial of degree at least 1.
+    * @param p the prime modulus.
+    * @return the monic irreducible factors of the polynomial, ordered by degree and
+    * then coefficients.
+    */
+   public static List<long[]> factorSquareFree(long[] poly, long p) {
+      List<long[]> factors = new ArrayList<>();
+      List<long[]> products = distinctDegree(poly, p);
+      // a fixed seed, so the factors are found the same way on every run
+      Random random = new Random(p);
+      for(int d = 1; d <= products.size(); d++)
+         if(products.get(d - 1).length > 1)
+            equalDegree(products.get(d - 1), d, p, random, factors);
+      factors.sort(ModularPolynomials::compare);
+      return factors;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Splits a product of distinct monic irreducibles of the same degree d modulo p into those
+    * irreducibles (Cantor-Zassenhaus). For a random a, a^((p^d - 1) / 2) is 1 or -1 modulo
+    * each irreducible, independently, so its gcd with a^((p^d - 1) / 2) - 1 likely splits the
+    * product. For p = 2, the trace a + a^2 + ... + a^(2^(d-1)), which is 0 or 1 modulo each
+    * irreducible, is used instead.
+    * @param poly the monic product of irreducibles of degree d.
+    * @param d the degree of each irreducible.
+    * @param p the prime modulus.
+    * @param random the source of the random polynomials a.
+    * @param factors the list the irreducibles are added to.
+    */
+   private static void equalDegree(long[] poly, int d, long p, Random random, List<long[]> factors) {
+      if(degree(poly) == d) {
+         factors.add(poly);
+         return;
+      }
+      BigInteger halfOrder = BigInteger.valueOf(p).pow(d).subtract(BigInteger.ONE).shiftRight(1);
+      while(true) {
+         long[] a = new long[degree(poly)];
+         for(int i = 0; i < a.length; i++)
+            a[i] = Math.floorMod(random.nextLong(), p);
+         a = trim(a);
+         if(a.length <= 1)
+            continue;
+
+         long[] split;
+         if(p == 2) {
+            long[] trace = a, square = a;
+            for(int i = 1; i < d; i++) {
+               square = remainder(multiply(square, square, p), poly, p);
+               trace = subtract(trace, square, p);
+            }
+            split = gcd(poly, trace, p);
+         } else
+            split = gcd(poly, subtract(powMod(a, halfOrder, poly, p), new long[] {1}, p), p);
+
+         if(split.length > 1 && split.length < poly.length) {
+            equalDegree(split, d, p, random, factors);
+            equalDegree(divide(poly, split, p)[0], d, p, random, factors);
+            return;
+         }
+      }
+   }
+
+   /**
+    * Finds the matrix of the Frobenius map a -> a^p modulo the given polynomial, whose rows
+    * are x^(ip) modulo the polynomial, as (sum a_i x^i)^p = sum a_i x^(ip) modulo p.
+    * @param poly the monic polynomial of degree n at least 1.
+    * @param p the prime modulus.
+    * @return the n rows of the matrix, each with n coefficients.
+    */
+   private static long[][] frobeniusMatrix(long[] poly, long p) {
+      int n = degree(poly);
+      long[][] matrix = new long[n][];
+      long[] xp = powMod(X, BigInteger.valueOf(p), poly, p), row = {1};
+      for(int i = 0; i < n; i++) {
+         matrix[i] = Arrays.copyOf(row, n);
+         row = remainder(multiply(row, xp, p), poly, p);
+      }
+      return matrix;
+   }
+
+   /**
+    * Raises a polynomial to the power p modulo another polynomial, given the matrix of the
+    * Frobenius map modulo that polynomial.
+    * @param poly the polynomial, of lower degree than the modulus.
+    * @param frobenius the Frobenius matrix of the modulus.
+    * @param p the prime modulus.
+    * @return poly^p modulo the polynomial modulus.
+    */
+   private static long[] applyFrobenius(long[] poly, long[][] frobenius, long p) {
+      long barrett = barrett(p);
+      long[] result = new long[frobenius.length];
+      for(int i = 0; i < poly.length; i++) {
+         if(poly[i] == 0)
+            continue;
+         long[] row = frobenius[i];
+         for(int j = 0; j < result.length; j++)
+            result[j] = mod(result[j] + poly[i] * row[j], p, barrett);
+      }
+      return trim(result);
+   }
+
+   /**
+    * Compares two polynomials by degree, and then by their coefficients from the highest power.
+    * @param a one of the polynomials.
+    * @param b the other polynomial.
+    * @return a negative integer, zero, or a positive integer as a is less than, equal to,
+    * or greater than b.
+    */
+   private static int compare(long[] a, long[] b) {
+      if(a.length != b.length)
+         return Integer.compare(a.length, b.length);
+      for(int i = a.length - 1; i >= 0; i--)
+         if(a[i] != b[i])
+            return Long.compare(a[i], b[i]);
+      return 0;
+   }
+
+   /**
+    * Multiplies the given polynomial by a constant modulo p.
+    * @param poly the polynomial.
+    * @param scalar the constant, in [0, p).
+    * @param p the prime modulus.
+    * @return the scaled polynomial.
+    */
+   private static long[] scale(long[] poly, long scalar, long p) {
+      long barrett = barrett(p);
+      long[] scaled = new long[poly.length];
+      for(int i = 0; i < poly.length; i++)
+         scaled[i] = mod(poly[i] * scalar, p, barrett);
+      return trim(scaled);
+   }
+
+   /**
+    * Finds the factor used to reduce numbers modulo p via Barrett reduction.
+    * @param p the prime modulus.
+    * @return floor((2^64 - 1) / p).
+    */
+   private static long barrett(long p) {
+      return Long.divideUnsigned(-1L, p);
+   }
+
+   /**
+    * Reduces a non-negative number modulo p via Barrett reduction, estimating the quotient
+    * as the high 64 bits of the number times floor((2^64 - 1) / p), which is at most 2 less
+    * than the true quotient.
+    * @param num the number, below 2^63.
+    * @param p the prime modulus.
+    * @param barrett the Barrett factor of p.
+    * @return the number modulo p.
+    */
+   private static long mod(long num, long p, long barrett) {
+      long rem = num - Math.multiplyHigh(num, barrett) * p;
+      if(rem >= p)
+         rem -= p;
+      return rem >= p ? rem - p : rem;
+   }
+
+   /**
+    * Finds the inverse of a number modulo p.
+    * @param num the number, not divisible by p.
+    * @param p the prime modulus.
+    * @return the inverse of the number modulo p.
+    */
+   private static long modInverse(long num, long p) {
+      // the extended Euclidean algorithm, tracking only the coefficient of num
+      long a = num, b = p, x = 1, y = 0;
+      while(b != 0) {
+         long quot = a / b, temp = a - quot * b;
+         a = b;
+         b = temp;
+         temp = x - quot * y;
+         x = y;
+         y = temp;
+      }
+      return x < 0 ? x + p : x;
+   }
+
+   /**
+    * Removes the zero coefficients of the highest powers from the given coefficients.
+    * @param coeffs the coefficients indexed by power.
+    * @return the coefficients without trailing zeroes (the same array if there were none).
+    */
+   private static long[] trim(long[] coeffs) {
+      int length = coeffs.length;
+      while(length > 0 && coeffs[length - 1] == 0)
+         length--;
+      return length == coeffs.length ? coeffs : Arrays.copyOf(coeffs, length);
+   }
+}
@@ -0,0 +1,132 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+
+/**
+ * Class utilized to quickly screen possible rational roots of a polynomial with integer
+ * coefficients. The polynomial is reduced modulo a handful of word-sized primes once, after
+ * which a possible root p/q can be rejected using only {@code long} arithmetic, as
+ * q^n * f(p/q) must be divisible by every prime if p/q is a root. Sparse polynomials are
+ * evaluated term by term, raising p and q to the gaps between powers by repeated squaring.
+ * @author Nathan Harbison
+ */
+public class ModularRootFilter {
+   /**
+    * The primes the polynomial is reduced modulo, each less than 2^31 so that the product
+    * of two residues (plus a residue) cannot overflow a {@code long}.
+    */
+   private static final long[] PRIMES = {2147483647L, 2147483629L, 2147483587L, 2147483579L};
+
+   /** The coefficients of the polynomial reduced modulo each prime, in order of decreasing power. */
+   private final long[][] residues;
+   /** The powers of the coefficients, in decreasing order, or null if the polynomial is dense. */
+   private final int[] powers;
+
+   /**
+    * Instantiates a filter for the polynomial with the given coefficients.
+    * @param coeffs the coefficients of the polynomial, in order of decreasing power.
+    */
+   public ModularRootFilter(BigInteger[] coeffs) {
+      this(null, coeffs);
+   }
+
+   /**
+    * Instantiates a filter for the polynomial with the given terms, so that a sparse
+    * polynomial is screened in time proportional to its number of terms (and the
+    * logarithm of its degree) rather than its degree.
+    * @param powers the powers of the terms, in decreasing order, or null if the
+    * coefficients are of every power.
+    * @param coeffs the coefficients of the terms, in the same order as their powers.
+    */
+   public ModularRootFilter(int[] powers, BigInteger[] coeffs) {
+      this.powers = powers;
+      this.residues = new long[PRIMES.length][coeffs.length];
+      for(int i = 0; i < PRIMES.length; i++) {
+         BigInteger prime = BigInteger.valueOf(PRIMES[i]);
+         for(int j = 0; j < coeffs.length; j++) {
+            if(coeffs[j].bitLength() < 64)
+               this.residues[i][j] = Math.floorMod(coeffs[j].longValue(), PRIMES[i]);
+            else
+               this.residues[i][j] = coeffs[j].mod(prime).longValue();
+         }
+      }
+   }
+
+   /**
+    * Determines if p/q may be a root of the polynomial, i.e. if q^n * f(p/q) is
+    * divisible by each of the filter's primes. If false, p/q is certainly not a root.
+    * @param p the numerator of the possible root.
+    * @param q the denominator of the possible root.
+    * @return whether p/q passes the filter.
+    */
+   public boolean mayBeRoot(BigInteger p, BigInteger q) {
+      if(p.bitLength() < 64 && q.bitLength() < 64)
+         return mayBeRoot(p.longValue(), q.longValue());
+
+      for(int i = 0; i < PRIMES.length; i++) {
+         BigInteger prime = BigInteger.valueOf(PRIMES[i]);
+         if(evaluate(i, p.mod(prime).longValue(), q.mod(prime).longValue()) != 0)
+            return false;
+      }
+      return true;
+   }
+
+   /**
+    * Determines if p/q may be a root of the polynomial, i.e. if q^n * f(p/q) is
+    * divisible by each of the filter's primes. If false, p/q is certainly not a root.
+    * @param p the numerator of the possible root.
+    * @param q the denominator of the possible root.
+    * @return whether p/q passes the filter.
+    */
+   public boolean mayBeRoot(long p, long q) {
+      for(int i = 0; i < PRIMES.length; i++)
+         if(evaluate(i, Math.floorMod(p, PRIMES[i]), Math.floorMod(q, PRIMES[i])) != 0)
+            return false;
+      return true;
+   }
+
+   /**
+    * Evaluates q^n * f(p/q) modulo one of the filter's primes via Horner's method.
+    * @param primeInd the index of the prime.
+    * @param p the numerator of the possible root, reduced modulo the prime.
+    * @param q the denominator of the possible root, reduced modulo the prime.
+    * @return the residue of q^n * f(p/q) modulo the prime.
+    */
+   private long evaluate(int primeInd, long p, long q) {
+      long prime = PRIMES[primeInd];
+      long[] coeffs = this.residues[primeInd];
+      long eval = coeffs[0], qPow = 1;
+      if(this.powers == null) {
+         for(int i = 1; i < coeffs.length; i++) {
+            qPow = qPow * q % prime;
+            eval = (eval * p + coeffs[i] * qPow % prime) % prime;
+         }
+         return eval;
+      }
+
+      // Horner's method over the gaps between the powers of consecutive terms
+      for(int i = 1; i < coeffs.length; i++) {
+         int gap = this.powers[i - 1] - this.powers[i];
+         qPow = qPow * powMod(q, gap, prime) % prime;
+         eval = (eval * powMod(p, gap, prime) + coeffs[i] * qPow % prime) % prime;
+      }
+      return eval * powMod(p, this.powers[coeffs.length - 1], prime) % prime;
+   }
+
+   /**
+    * Computes the given base raised to the given power modulo one of the filter's primes.
+    * @param base the base, reduced modulo the prime.
+    * @param exp the non-negative exponent.
+    * @param prime the prime modulus.
+    * @return the base raised to the power, modulo the prime.
+    */
+   private static long powMod(long base, long exp, long prime) {
+      long result = 1;
+      for(; exp > 0; exp >>= 1) {
+         if((exp & 1) == 1)
+            result = result * base % prime;
+         base = base * base % prime;
+      }
+      return result;
+   }
+}
@@ -0,0 +1,289 @@
+package version3.utilities;
+
+import java.util.*;
+
+/**
+ * Class representing an immutable monomial, i.e. a product of variables to non-negative
+ * integer powers, in a compact encoding. Each of the 52 valid variables (A-Z, then a-z)
+ * has a slot, and the slots of the variables present are kept in a bitmask. The powers of
+ * the variables present are stored in slot order: packed into two longs, 16 bits each, if
+ * there are at most 8 variables and all powers are below 2^16, and otherwise in an array.
+ * As monomials are immutable, they can be shared between terms without copying.
+ * @author Nathan Harbison
+ */
+public final class Monomial implements Comparable<Monomial> {
+   /** The monomial with no variables, i.e. 1. */
+   public static final Monomial ONE = new Monomial(0, 0, 0, null);
+
+   /** All alphabetic characters that can be validly used as variables, in slot order. */
+   private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+   /** The number of bits per packed power. */
+   private static final int PACKED_BITS = 16;
+   /** The number of powers packed into each long. */
+   private static final int PER_WORD = Long.SIZE / PACKED_BITS;
+   /** The largest number of variables whose powers can be packed. */
+   private static final int MAX_PACKED = 2 * PER_WORD;
+   /** The mask of a single packed power. */
+   private static final long PACKED_MASK = (1L << PACKED_BITS) - 1;
+
+   /** The bitmask of the slots of the variables present in the monomial. */
+   private final long mask;
+   /** The packed powers of the first 4 variables present, or 0 if unpacked. */
+   private final long low;
+   /** The packed powers of the next 4 variables present, or 0 if unpacked. */
+   private final long high;
+   /** The powers of the variables present, in slot order, or null if packed. */
+   private final int[] powers;
+
+   /**
+    * Instantiates a monomial from its encoding.
+    * @param mask the bitmask of the slots of the variables present.
+    * @param low the packed powers of the first 4 variables present.
+    * @param high the packed powers of the next 4 variables present.
+    * @param powers the powers of the variables present, or null if packed.
+    */
+   private Monomial(long mask, long low, long high, int[] powers) {
+      this.mask = mask;
+      this.low = low;
+      this.high = high;
+      this.powers = powers;
+   }
+
+   /**
+    * Creates the monomial with the given variables and powers, ignoring any with a power of 0.
+    * @param vars a map of the variables to their powers.
+    * @return the monomial with the given variables.
+    * @throws IllegalArgumentException if given an invalid variable or a negative power.
+    */
+   public static Monomial of(Map<Character, Integer> vars) {
+      long mask = 0;
+      for(Map.Entry<Character, Integer> entry : vars.entrySet()) {
+         if(entry.getValue() < 0)
+            throw new IllegalArgumentException("Invalid power: must be a non-negative integer.");
+         if(entry.getValue() != 0)
+            mask |= 1L << slot(entry.getKey());
+      }
+      int[] powers = new int[Long.bitCount(mask)];
+      for(Map.Entry<Character, Integer> entry : vars.entrySet())
+         if(entry.getValue() != 0)
+            powers[rank(mask, slot(entry.getKey()))] = entry.getValue();
+      return create(mask, powers);
+   }
+
+   /**
+    * Returns the power of the given variable in the monomial.
+    * @param var the variable whose power is being found.
+    * @return the power of the variable, or 0 if it is not present.
+    * @throws IllegalArgumentException if given an invalid non-alphabetic variable.
+    */
+   public int getPower(char var) {
+      int index = index(var);
+      if(index == -1) {
+         if(!Character.isLetter(var))
+            throw new IllegalArgumentException("Error: Invalid non-alphabetic variable " + var);
+         return 0;
+      }
+      if((this.mask & (1L << index)) == 0)
+         return 0;
+      return powerAt(rank(this.mask, index));
+   }
+
+   /**
+    * Creates a copy of the monomial with the power of the given variable changed.
+    * @param var the variable whose power is being changed.
+    * @param power the new power of the variable, where 0 removes the variable.
+    * @return the modified monomial.
+    * @throws IllegalArgumentException if given an invalid variable or a negative power.
+    */
+   public Monomial withPower(char var, int power) {
+      if(power < 0)
+         throw new IllegalArgumentException("Invalid power: must be a non-negative integer.");
+      int index = slot(var);
+      long newMask = power == 0 ? this.mask & ~(1L << index) : this.mask | (1L << index);
+      int[] newPowers = new int[Long.bitCount(newMask)];
+      for(int i = 0, j = 0; i < ALPHABET.length(); i++) {
+         if(i == index) {
+            if(power != 0)
+               newPowers[j++] = power;
+         } else if((this.mask & (1L << i)) != 0)
+            newPowers[j++] = powerAt(rank(this.mask, i));
+      }
+      return create(newMask, newPowers);
+   }
+
+   /**
+    * Determines if the monomial has no variables.
+    * @return whether the monomial is 1.
+    */
+   public boolean isConstant() {
+      return this.mask == 0;
+   }
+
+   /**
+    * Returns the number of variables present in the monomial.
+    * @return the number of variables.
+    */
+   public int size() {
+      return Long.bitCount(this.mask);
+   }
+
+   /**
+    * Returns the variables present in the monomial.
+    * @return a new set of the variables with non-zero powers.
+    */
+   public Set<Character> getVariables() {
+      Set<Character> vars = new HashSet<>();
+      for(long rest = this.mask; rest != 0; rest &= rest - 1)
+         vars.add(ALPHABET.charAt(Long.numberOfTrailingZeros(rest)));
+      return vars;
+   }
+
+   /**
+    * Returns the variables present in the monomial, mapped to their powers.
+    * @return a new map of the variables to their non-zero powers.
+    */
+   public Map<Character, Integer> toMap() {
+      Map<Character, Integer> vars = new HashMap<>();
+      int rank = 0;
+      for(long rest = this.mask; rest != 0; rest &= rest - 1)
+         vars.put(ALPHABET.charAt(Long.numberOfTrailingZeros(rest)), powerAt(rank++));
+      return vars;
+   }
+
+   /**
+    * Returns the string expression of the monomial's variables, in alphabetical order
+    * with uppercase variables first.
+    * @return string expression of the variables and their powers.
+    */
+   @Override
+   public String toString() {
+      StringBuilder varStr = new StringBuilder();
+      int rank = 0;
+      for(long rest = this.mask; rest != 0; rest &= rest - 1) {
+         varStr.append(ALPHABET.charAt(Long.numberOfTrailingZeros(rest)));
+         int power = powerAt(rank++);
+         if(power != 1)
+            varStr.append('^').append(power);
+      }
+      return varStr.toString();
+   }
+
+   /**
+    * Determines equality between the monomial and another object,
+    * returning true if both are monomials with the same variables and powers.
+    * @return whether the object is an identical monomial.
+    */
+   @Override
+   public boolean equals(Object obj) {
+      if(this == obj)
+         return true;
+      if(obj instanceof Monomial other)
+         return this.mask == other.mask && this.low == other.low && this.high == other.high
+                 && Arrays.equals(this.powers, other.powers);
+      return false;
+   }
+
+   /**
+    * Compares the monomial to another by their encodings, giving a total order consistent
+    * with equality (but not related to degree).
+    * @param other the monomial to be compared to.
+    * @return a negative integer, zero, or a positive integer as the monomial is less than,
+    * equal to, or greater than the other.
+    */
+   @Override
+   public int compareTo(Monomial other) {
+      if(this.mask != other.mask)
+         return Long.compareUnsigned(this.mask, other.mask);
+      if(this.low != other.low)
+         return Long.compareUnsigned(this.low, other.low);
+      if(this.high != other.high)
+         return Long.compareUnsigned(this.high, other.high);
+      return Arrays.compare(this.powers, other.powers);
+   }
+
+   /**
+    * Hashes the given monomial.
+    * @return a hash code for the given monomial.
+    */
+   @Override
+   public int hashCode() {
+      long hash = this.mask * 31 + this.low;
+      hash = hash * 31 + this.high;
+      return Long.hashCode(hash) * 31 + Arrays.hashCode(this.powers);
+   }
+
+   // ------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Creates the monomial with the given variables and powers, packing the powers if
+    * they fit, so that each monomial has exactly one encoding.
+    * @param mask the bitmask of the slots of the variables present.
+    * @param powers the non-zero powers of the variables present, in slot order.
+    * @return the monomial with the given variables.
+    */
+   private static Monomial create(long mask, int[] powers) {
+      if(mask == 0)
+         return ONE;
+      if(powers.length > MAX_PACKED)
+         return new Monomial(mask, 0, 0, powers);
+      long low = 0, high = 0;
+      for(int i = 0; i < powers.length; i++) {
+         if(powers[i] > PACKED_MASK)
+            return new Monomial(mask, 0, 0, powers);
+         if(i < PER_WORD)
+            low |= (long) powers[i] << (i * PACKED_BITS);
+         else
+            high |= (long) powers[i] << ((i - PER_WORD) * PACKED_BITS);
+      }
+      return new Monomial(mask, low, high, null);
+   }
+
+   /**
+    * Returns the power of the variable present with the given rank.
+    * @param rank the number of variables present in lower slots.
+    * @return the power of the variable.
+    */
+   private int powerAt(int rank) {
+      if(this.powers != null)
+         return this.powers[rank];
+      long word = rank < PER_WORD ? this.low : this.high;
+      return (int) ((word >>> ((rank % PER_WORD) * PACKED_BITS)) & PACKED_MASK);
+   }
+
+   /**
+    * Finds the number of variables present in slots below the given slot.
+    * @param mask the bitmask of the slots of the variables present.
+    * @param slot the slot of a variable.
+    * @return the rank of the slot.
+    */
+   private static int rank(long mask, int slot) {
+      return Long.bitCount(mask & ((1L << slot) - 1));
+   }
+
+   /**
+    * Finds the slot of the given variable.
+    * @param var the variable.
+    * @return the slot of the variable.
+    * @throws IllegalArgumentException if given an invalid variable.
+    */
+   private static int slot(char var) {
+      int index = index(var);
+      if(index == -1)
+         throw new IllegalArgumentException("Error: Invalid variable " + var);
+      return index;
+   }
+
+   /**
+    * Finds the slot of the given character, if it is a valid variable.
+    * @param var the character.
+    * @return the slot of the character, or -1 if it is not a valid variable.
+    */
+   private static int index(char var) {
+      if(var >= 'A' && var <= 'Z')
+         return var - 'A';
+      if(var >= 'a' && var <= 'z')
+         return var - 'a' + 26;
+      return -1;
+   }
+}
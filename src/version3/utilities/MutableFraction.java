@@ -0,0 +1,192 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+
+/**
+ * A class based, mutable representation of a rational number, utilized as an accumulator
+ * in loops (such as Horner evaluation of a polynomial with rational coefficients) where
+ * creating a new fraction at every step would be wasteful. Operations modify the
+ * accumulator in place, and the numerator and denominator are only put in simplest
+ * form when needed. Like {@link Fraction}, both are stored as primitive {@code long}
+ * values until an operation would overflow.
+ * @author Nathan Harbison
+ */
+public class MutableFraction {
+   /** The numerator and denominator of the fraction, if stored in primitive form. */
+   private long num, denom;
+   /**
+    * The numerator and denominator of the fraction, if either is too large to be stored
+    * in primitive form; otherwise, both are null.
+    */
+   private BigInteger bigNum, bigDenom;
+
+   // ------------------------------------------------------------------------------
+   // Constructors
+
+   /**
+    * Instantiates an accumulator with a value of zero.
+    */
+   public MutableFraction() {
+      setSmall(0, 1);
+   }
+
+   // ------------------------------------------------------------------------------
+   // Modifiers
+
+   /**
+    * Sets the value of the accumulator to the value of the given fraction.
+    * @param frac the new value of the accumulator.
+    * @return this accumulator.
+    */
+   public MutableFraction set(Fraction frac) {
+      if(frac.isSmall())
+         setSmall(frac.smallNum(), frac.smallDenom());
+      else
+         setBig(frac.getNum(), frac.getDenom());
+      return this;
+   }
+
+   /**
+    * Multiplies the accumulator by the given factor and then adds the given fraction
+    * to it, i.e. a single step of Horner's method.
+    * @param factor the factor the accumulator is multiplied by.
+    * @param addend the fraction added after multiplying.
+    * @return this accumulator.
+    */
+   public MutableFraction mulAdd(Fraction factor, Fraction addend) {
+      if(this.isSmall() && factor.isSmall() && addend.isSmall()
+              && mulAddSmall(factor.smallNum(), factor.smallDenom(), addend.smallNum(), addend.smallDenom()))
+         return this;
+      mulAddBig(factor.getNum(), factor.getDenom(), addend.getNum(), addend.getDenom());
+      return this;
+   }
+
+   // ------------------------------------------------------------------------------
+   // Accessors
+
+   /**
+    * Determines if the accumulator holds a value of zero.
+    * @return whether the accumulator is zero.
+    */
+   public boolean isZero() {
+      if(this.isSmall())
+         return this.num == 0;
+      return this.bigNum.signum() == 0;
+   }
+
+   // ------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Determines if the accumulator is stored in primitive form.
+    * @return whether the accumulator is stored in primitive form.
+    */
+   private boolean isSmall() {
+      return this.bigNum == null;
+   }
+
+   /**
+    * Returns the numerator of the accumulator as a {@code BigInteger}.
+    * @return the numerator of the accumulator.
+    */
+   private BigInteger getNum() {
+      return this.isSmall() ? BigInteger.valueOf(this.num) : this.bigNum;
+   }
+
+   /**
+    * Returns the denominator of the accumulator as a {@code BigInteger}.
+    * @return the denominator of the accumulator.
+    */
+   private BigInteger getDenom() {
+      return this.isSmall() ? BigInteger.valueOf(this.denom) : this.bigDenom;
+   }
+
+   /**
+    * Stores the given numerator and denominator in primitive form.
+    * @param num the new numerator.
+    * @param denom the new denominator.
+    */
+   private void setSmall(long num, long denom) {
+      this.num = num;
+      this.denom = denom;
+      this.bigNum = this.bigDenom = null;
+   }
+
+   /**
+    * Stores the given numerator and denominator as {@code BigInteger} values.
+    * @param num the new numerator.
+    * @param denom the new denominator.
+    */
+   private void setBig(BigInteger num, BigInteger denom) {
+      this.bigNum = num;
+      this.bigDenom = denom;
+   }
+
+   /**
+    * Puts the accumulator in simplest form, by dividing the numerator and denominator
+    * by their greatest common divisor and making the denominator positive.
+    */
+   private void normalize() {
+      if(this.isSmall()) {
+         if(this.denom != 1)
+            set(Fraction.valueOf(this.num, this.denom));
+      } else {
+         set(Fraction.valueOf(this.bigNum, this.bigDenom));
+      }
+   }
+
+   /**
+    * Computes this * factor + addend in primitive arithmetic, leaving the
+    * accumulator unchanged if the computation overflows. On overflow, the accumulator
+    * is put in simplest form and the computation is attempted once more.
+    * @param factorNum the numerator of the factor.
+    * @param factorDenom the denominator of the factor.
+    * @param addNum the numerator of the addend.
+    * @param addDenom the denominator of the addend.
+    * @return whether the computation succeeded without overflowing.
+    */
+   private boolean mulAddSmall(long factorNum, long factorDenom, long addNum, long addDenom) {
+      for(int attempt = 0; attempt < 2; attempt++) {
+         try {
+            long newNum = Math.multiplyExact(this.num, factorNum);
+            long newDenom = Math.multiplyExact(this.denom, factorDenom);
+            if(addDenom == newDenom) {
+               newNum = Math.addExact(newNum, addNum);
+            } else {
+               newNum = Math.addExact(Math.multiplyExact(newNum, addDenom), Math.multiplyExact(addNum, newDenom));
+               newDenom = Math.multiplyExact(newDenom, addDenom);
+            }
+            setSmall(newNum, newDenom);
+            return true;
+         } catch(ArithmeticException ex) {
+            // overflowed - try again in simplest form, if not already
+            if(attempt != 0 || this.denom == 1)
+               return false;
+            normalize();
+            if(!this.isSmall())
+               return false;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Computes this * factor + addend in arbitrary precision arithmetic, returning the
+    * accumulator to primitive form afterwards if possible.
+    * @param factorNum the numerator of the factor.
+    * @param factorDenom the denominator of the factor.
+    * @param addNum the numerator of the addend.
+    * @param addDenom the denominator of the addend.
+    */
+   private void mulAddBig(BigInteger factorNum, BigInteger factorDenom, BigInteger addNum, BigInteger addDenom) {
+      BigInteger newNum = this.getNum().multiply(factorNum);
+      BigInteger newDenom = this.getDenom().multiply(factorDenom);
+      if(!addDenom.equals(newDenom)) {
+         newNum = newNum.multiply(addDenom);
+         addNum = addNum.multiply(newDenom);
+         newDenom = newDenom.multiply(addDenom);
+      }
+      setBig(newNum.add(addNum), newDenom);
+      normalize();
+   }
+}
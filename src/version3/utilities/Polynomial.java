@@ -0,0 +1,529 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Class representing an immutable univariate polynomial with integer coefficients,
+ * stored densely as an array of coefficients indexed by power.
+ * @author Nathan Harbison
+ */
+public final class Polynomial {
+   /** The zero polynomial. */
+   public static final Polynomial ZERO = new Polynomial(new BigInteger[0]);
+   /** The constant polynomial 1. */
+   public static final Polynomial ONE = new Polynomial(new BigInteger[] {BigInteger.ONE});
+   /** The largest prime below 2^31, from which the primes used to find gcds descend. */
+   private static final long GCD_PRIME_START = Integer.MAX_VALUE;
+
+   /** The coefficients of the polynomial, indexed by power, with a non-zero last entry. */
+   private final BigInteger[] coeffs;
+   /** The coefficients as {@code long} values, computed when first needed, or null if any is too large. */
+   private long[] longCoeffs;
+   /** Whether the coefficients have been converted to {@code long} values. */
+   private boolean longCoeffsComputed;
+
+   /**
+    * Instantiates a polynomial with the given coefficients, which are not copied.
+    * @param coeffs the coefficients indexed by power, with a non-zero last entry.
+    */
+   private Polynomial(BigInteger[] coeffs) {
+      this.coeffs = coeffs;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Conversions
+
+   /**
+    * Creates the polynomial with the given coefficients, in order of increasing power.
+    * @param coeffs the coefficients, starting with the constant coefficient.
+    * @return the polynomial with the given coefficients.
+    */
+   public static Polynomial fromAscending(BigInteger... coeffs) {
+      return new Polynomial(trim(coeffs.clone()));
+   }
+
+   /**
+    * Creates the polynomial with the given coefficients, in order of decreasing power.
+    * @param coeffs the coefficients, starting with the leading coefficient.
+    * @return the polynomial with the given coefficients.
+    */
+   public static Polynomial fromDescending(List<BigInteger> coeffs) {
+      BigInteger[] ascending = new BigInteger[coeffs.size()];
+      for(int i = 0; i < ascending.length; i++)
+         ascending[i] = coeffs.get(ascending.length - 1 - i);
+      return new Polynomial(trim(ascending));
+   }
+
+   /**
+    * Creates the polynomial represented by the given expression in one variable.
+    * @param exp the expression, whose only variable (if any) is the given variable.
+    * @param var the variable of the polynomial.
+    * @return the polynomial represented by the expression.
+    * @throws IllegalArgumentException if the expression contains another variable.
+    */
+   public static Polynomial fromExpression(Expression exp, char var) {
+      int degree = 0;
+      for(int i = 0; i < exp.size(); i++) {
+         if(exp.getTerm(i).getMonomial().size() > (exp.getPower(i, var) > 0 ? 1 : 0))
+            throw new IllegalArgumentException("Error: not a polynomial expression with one variable");
+         degree = Math.max(degree, exp.getPower(i, var));
+      }
+      BigInteger[] coeffs = new BigInteger[degree + 1];
+      Arrays.fill(coeffs, BigInteger.ZERO);
+      for(int i = 0; i < exp.size(); i++)
+         coeffs[exp.getPower(i, var)] = coeffs[exp.getPower(i, var)].add(exp.getCoeff(i));
+      return new Polynomial(trim(coeffs));
+   }
+
+   /**
+    * Creates the expression representing the polynomial in the given variable, with terms of
+    * decreasing power and without terms with a coefficient of zero.
+    * @param var the variable of the expression.
+    * @return the expression representing the polynomial.
+    */
+   public Expression toExpression(char var) {
+      Expression exp = new Expression();
+      for(int power = this.degree(); power >= 0; power--) {
+         if(this.coeffs[power].signum() == 0)
+            continue;
+         exp.addTerm(new Term(this.coeffs[power], power == 0 ? Monomial.ONE : Monomial.ONE.withPower(var, power)));
+      }
+      return exp;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Accessors
+
+   /**
+    * Returns the degree of the polynomial.
+    * @return the degree of the polynomial, or -1 for the zero polynomial.
+    */
+   public int degree() {
+      return this.coeffs.length - 1;
+   }
+
+   /**
+    * Determines if the polynomial is zero.
+    * @return whether the polynomial is zero.
+    */
+   public boolean isZero() {
+      return this.coeffs.length == 0;
+   }
+
+   /**
+    * Returns the coefficient of the given power of the variable.
+    * @param power the power, which is non-negative.
+    * @return the coefficient of the power, which is zero above the degree.
+    */
+   public BigInteger getCoeff(int power) {
+      return power < this.coeffs.length ? this.coeffs[power] : BigInteger.ZERO;
+   }
+
+   /**
+    * Returns the leading coefficient of the polynomial.
+    * @return the coefficient of the highest power, or zero for the zero polynomial.
+    */
+   public BigInteger leadingCoeff() {
+      return this.isZero() ? BigInteger.ZERO : this.coeffs[this.degree()];
+   }
+
+   /**
+    * Returns the constant coefficient of the polynomial.
+    * @return the coefficient of the zeroth power.
+    */
+   public BigInteger constantCoeff() {
+      return this.getCoeff(0);
+   }
+
+   /**
+    * Returns the coefficients of the polynomial, in order of decreasing power.
+    * @return a new array of the coefficients, starting with the leading coefficient.
+    */
+   public BigInteger[] getDescendingCoeffs() {
+      BigInteger[] descending = new BigInteger[this.coeffs.length];
+      for(int i = 0; i < descending.length; i++)
+         descending[i] = this.coeffs[this.coeffs.length - 1 - i];
+      return descending;
+   }
+
+   /**
+    * Returns the number of non-zero coefficients of the polynomial.
+    * @return the number of terms of the polynomial.
+    */
+   public int nonZeroTerms() {
+      int count = 0;
+      for(BigInteger coeff : this.coeffs)
+         if(coeff.signum() != 0)
+            count++;
+      return count;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Arithmetic
+
+   /**
+    * Evaluates the polynomial at the given integer via Horner's method.
+    * @param x the value of the variable.
+    * @return the value of the polynomial.
+    */
+   public BigInteger evaluate(BigInteger x) {
+      BigInteger eval = BigInteger.ZERO;
+      for(int power = this.degree(); power >= 0; power--)
+         eval = eval.multiply(x).add(this.coeffs[power]);
+      return eval;
+   }
+
+   /**
+    * Determines if p/q is a root of the polynomial, by evaluating
+    * q^n * f(p/q) = a_n * p^n + a_(n-1) * p^(n-1) * q + ... + a_0 * q^n
+    * via Horner's method with only integer arithmetic. Primitive arithmetic is used
+    * until it would overflow, after which the evaluation continues with BigIntegers.
+    * @param p the numerator of the possible root.
+    * @param q the (positive) denominator of the possible root.
+    * @return whether p/q is a root of the polynomial.
+    */
+   public boolean isRoot(BigInteger p, BigInteger q) {
+      if(this.isZero())
+         return true;
+      int power = this.degree();
+      BigInteger eval = this.coeffs[power], qPow = BigInteger.ONE;
+      long[] longs = this.longCoeffs();
+      if(longs != null && p.bitLength() < 64 && q.bitLength() < 64) {
+         long pLong = p.longValue(), qLong = q.longValue();
+         long evalLong = longs[power], qPowLong = 1;
+         try {
+            for(power = this.degree() - 1; power >= 0; power--) {
+               long newQPow = Math.multiplyExact(qPowLong, qLong);
+               evalLong = Math.addExact(Math.multiplyExact(evalLong, pLong), Math.multiplyExact(longs[power], newQPow));
+               qPowLong = newQPow;
+            }
+            return evalLong == 0;
+         } catch(ArithmeticException ex) {
+            // overflowed at this power - continue from there with BigIntegers
+            eval = BigInteger.valueOf(evalLong);
+            qPow = BigInteger.valueOf(qPowLong);
+         }
+      } else
+         power--;
+
+      for(; power >= 0; power--) {
+         qPow = qPow.multiply(q);
+         eval = eval.multiply(p).add(this.coeffs[power].multiply(qPow));
+      }
+      return eval.signum() == 0;
+   }
+
+   /**
+    * Computes the derivative of the polynomial.
+    * @return the derivative of the polynomial.
+    */
+   public Polynomial derivative() {
+      if(this.degree() <= 0)
+         return ZERO;
+      BigInteger[] derivative = new BigInteger[this.degree()];
+      for(int power = 1; power < this.coeffs.length; power++)
+         derivative[power - 1] = this.coeffs[power].multiply(BigInteger.valueOf(power));
+      return new Polynomial(trim(derivative));
+   }
+
+   /**
+    * Subtracts another polynomial from the polynomial.
+    * @param other the polynomial being subtracted.
+    * @return the difference of the polynomials.
+    */
+   public Polynomial subtract(Polynomial other) {
+      BigInteger[] diff = Arrays.copyOf(this.coeffs, Math.max(this.coeffs.length, other.coeffs.length));
+      for(int power = 0; power < diff.length; power++) {
+         BigInteger coeff = power < this.coeffs.length ? this.coeffs[power] : BigInteger.ZERO;
+         diff[power] = power < other.coeffs.length ? coeff.subtract(other.coeffs[power]) : coeff;
+      }
+      return new Polynomial(trim(diff));
+   }
+
+   /**
+    * Finds the content of the polynomial, i.e. the gcd of its coefficients, with the sign
+    * of its leading coefficient.
+    * @return the content of the polynomial, or zero for the zero polynomial.
+    */
+   public BigInteger content() {
+      if(this.isZero())
+         return BigInteger.ZERO;
+      BigInteger content = Functions.gcd(Arrays.asList(this.coeffs));
+      return this.leadingCoeff().signum() < 0 ? content.negate() : content;
+   }
+
+   /**
+    * Finds the primitive part of the polynomial, i.e. the polynomial divided by its content,
+    * which has coprime coefficients and a positive leading coefficient.
+    * @return the primitive part of the polynomial, or zero for the zero polynomial.
+    */
+   public Polynomial primitivePart() {
+      BigInteger content = this.content();
+      if(content.equals(BigInteger.ONE) || content.signum() == 0)
+         return this;
+      BigInteger[] primitive = new BigInteger[this.coeffs.length];
+      for(int power = 0; power < primitive.length; power++)
+         primitive[power] = this.coeffs[power].divide(content);
+      return new Polynomial(primitive);
+   }
+
+   /**
+    * Finds the greatest common divisor of the polynomial and another via Brown's modular
+    * algorithm: the gcd is found modulo a sequence of primes below 2^31, scaled to have the
+    * gcd of the leading coefficients as its own, and the images are combined via the Chinese
+    * remainder theorem. Images of a higher degree than another come from primes dividing a
+    * resultant, and are discarded. Once a new prime leaves the combined coefficients
+    * unchanged, their primitive part is tested by dividing both polynomials, which proves
+    * it is the gcd, as no common factor can have a higher degree than its images.
+    * @param other the other polynomial.
+    * @return the primitive gcd of the polynomials (with a positive leading coefficient),
+    * or zero if both are zero.
+    */
+   public Polynomial gcd(Polynomial other) {
+      Polynomial a = this.primitivePart(), b = other.primitivePart();
+      if(a.isZero() || b.isZero())
+         return a.isZero() ? b : a;
+      if(a.degree() == 0 || b.degree() == 0)
+         return ONE;
+
+      BigInteger lead = Functions.gcd(a.leadingCoeff(), b.leadingCoeff());
+      BigInteger[] combined = null;
+      BigInteger modulus = BigInteger.ONE;
+      for(long p = GCD_PRIME_START; ; p -= 2) {
+         if(!PrimalityTest.isPrime(p))
+            continue;
+         long leadMod = lead.mod(BigInteger.valueOf(p)).longValue();
+         long[] reducedA = ModularPolynomials.reduce(a, p), reducedB = ModularPolynomials.reduce(b, p);
+         if(leadMod == 0 || reducedA.length != a.coeffs.length || reducedB.length != b.coeffs.length)
+            continue;
+         long[] image = ModularPolynomials.gcd(reducedA, reducedB, p);
+         if(image.length == 1)
+            return ONE;
+         image = ModularPolynomials.multiply(image, new long[] {leadMod}, p);
+
+         if(combined == null || image.length < combined.length) {
+            // the first image, or all previous ones were of too high a degree
+            combined = new BigInteger[image.length];
+            Arrays.fill(combined, BigInteger.ZERO);
+            modulus = BigInteger.ONE;
+         } else if(image.length > combined.length)
+            continue;
+         boolean changed = combine(combined, modulus, image, p);
+         modulus = modulus.multiply(BigInteger.valueOf(p));
+         if(changed)
+            continue;
+
+         Polynomial candidate = new Polynomial(combined.clone()).primitivePart();
+         if(candidate.divides(a) && candidate.divides(b))
+            return candidate;
+      }
+   }
+
+   /**
+    * Splits the polynomial into square-free parts via Yun's algorithm, from derivatives and
+    * gcds, so that a primitive polynomial f with a positive leading coefficient is
+    * f = a_1 * a_2^2 * ... * a_k^k for coprime square-free a_i.
+    * @return the parts a_1, ..., a_k, each primitive with a positive leading coefficient
+    * (and possibly 1), for the primitive part of the polynomial.
+    */
+   public List<Polynomial> squareFreeDecomposition() {
+      Polynomial poly = this.primitivePart();
+      List<Polynomial> parts = new ArrayList<>();
+      if(poly.degree() < 1)
+         return parts;
+      Polynomial derivative = poly.derivative();
+      Polynomial gcd = poly.gcd(derivative);
+      // b_i = f / (a_1 * ... * a_(i-1) * gcd), d_i = b_i * sum_(j >= i) (j - i + 1) a_j' / a_j
+      Polynomial b = poly.exactQuotient(gcd);
+      Polynomial d = derivative.exactQuotient(gcd).subtract(b.derivative());
+      while(b.degree() >= 1) {
+         Polynomial part = b.gcd(d);
+         parts.add(part);
+         b = b.exactQuotient(part);
+         d = d.exactQuotient(part).subtract(b.derivative());
+      }
+      return parts;
+   }
+
+   /**
+    * Divides the polynomial by another, if the quotient has integer coefficients.
+    * @param divisor the non-zero polynomial dividing this polynomial.
+    * @return the quotient and remainder of the division, or nothing if either would
+    * have fractional coefficients.
+    */
+   public Optional<DivisionResult> divide(Polynomial divisor) {
+      if(divisor.isZero())
+         throw new ArithmeticException("Error: division by the zero polynomial");
+      BigInteger[] rem = this.coeffs.clone();
+      int quotDegree = this.degree() - divisor.degree();
+      if(quotDegree < 0)
+         return Optional.of(new DivisionResult(ZERO, this));
+
+      // eliminate the leading coefficient of the remainder in turn, stopping as soon
+      // as a coefficient of the quotient is fractional
+      BigInteger lead = divisor.leadingCoeff();
+      BigInteger[] quot = new BigInteger[quotDegree + 1];
+      for(int i = quotDegree; i >= 0; i--) {
+         BigInteger[] quotRem = rem[i + divisor.degree()].divideAndRemainder(lead);
+         if(quotRem[1].signum() != 0)
+            return Optional.empty();
+         quot[i] = quotRem[0];
+         if(quot[i].signum() != 0)
+            for(int j = 0; j <= divisor.degree(); j++)
+               rem[i + j] = rem[i + j].subtract(quot[i].multiply(divisor.coeffs[j]));
+      }
+      return Optional.of(new DivisionResult(new Polynomial(trim(quot)),
+              new Polynomial(trim(Arrays.copyOf(rem, divisor.degree())))));
+   }
+
+   /**
+    * Divides the polynomial by qx - p for a rational root p/q via synthetic division,
+    * if the division is exact with an integer quotient.
+    * @param root the root p/q of the linear factor qx - p.
+    * @return the quotient of the division, or nothing if the division has a non-zero
+    * remainder or a fractional quotient.
+    */
+   public Optional<Polynomial> deflate(Fraction root) {
+      BigInteger p = root.getNum(), q = root.getDenom();
+      if(this.degree() < 1)
+         return Optional.empty();
+      // q * b_(i-1) = a_i + p * b_i, from the leading coefficient down
+      BigInteger[] quot = new BigInteger[this.degree()];
+      BigInteger carry = BigInteger.ZERO;
+      for(int power = this.degree(); power >= 1; power--) {
+         BigInteger[] quotRem = this.coeffs[power].add(carry).divideAndRemainder(q);
+         if(quotRem[1].signum() != 0)
+            return Optional.empty();
+         quot[power - 1] = quotRem[0];
+         carry = p.multiply(quotRem[0]);
+      }
+      if(this.coeffs[0].add(carry).signum() != 0)
+         return Optional.empty();
+      return Optional.of(new Polynomial(quot));
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // To-string and equality methods
+
+   /**
+    * Determines equality between the polynomial and another object,
+    * returning true if both are polynomials with the same coefficients.
+    * @return whether the object is an identical polynomial.
+    */
+   @Override
+   public boolean equals(Object obj) {
+      if(this == obj)
+         return true;
+      if(obj instanceof Polynomial other)
+         return Arrays.equals(this.coeffs, other.coeffs);
+      return false;
+   }
+
+   /**
+    * Hashes the given polynomial.
+    * @return a hash code for the given polynomial.
+    */
+   @Override
+   public int hashCode() {
+      return Arrays.hashCode(this.coeffs);
+   }
+
+   /**
+    * Returns a string representing the polynomial, in the variable x.
+    * @return a string representation of the polynomial.
+    */
+   @Override
+   public String toString() {
+      return this.isZero() ? "0" : this.toExpression('x').toString();
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Returns the coefficients as {@code long} values, converting them when first needed.
+    * @return the coefficients indexed by power, or null if any is too large.
+    */
+   private long[] longCoeffs() {
+      if(!this.longCoeffsComputed) {
+         long[] longs = new long[this.coeffs.length];
+         for(int i = 0; i < longs.length; i++) {
+            if(this.coeffs[i].bitLength() >= 64) {
+               longs = null;
+               break;
+            }
+            longs[i] = this.coeffs[i].longValue();
+         }
+         this.longCoeffs = longs;
+         this.longCoeffsComputed = true;
+      }
+      return this.longCoeffs;
+   }
+
+   /**
+    * Divides the polynomial by another which is known to divide it exactly over the integers.
+    * @param divisor the non-zero polynomial dividing this polynomial.
+    * @return the quotient of the division.
+    * @throws ArithmeticException if the division is not exact.
+    */
+   private Polynomial exactQuotient(Polynomial divisor) {
+      return this.divide(divisor).filter(result -> result.remainder().isZero()).map(DivisionResult::quotient)
+              .orElseThrow(() -> new ArithmeticException("Error: inexact polynomial division"));
+   }
+
+   /**
+    * Combines the coefficients of a polynomial modulo m with their residues modulo a prime p
+    * not dividing m, via the Chinese remainder theorem.
+    * @param coeffs the coefficients modulo m, in (-m/2, m/2], which are replaced by those
+    * modulo m * p, in (-m * p / 2, m * p / 2].
+    * @param modulus the modulus m.
+    * @param image the coefficients modulo p, of the same degree.
+    * @param p the prime.
+    * @return whether any of the coefficients changed.
+    */
+   private static boolean combine(BigInteger[] coeffs, BigInteger modulus, long[] image, long p) {
+      BigInteger prime = BigInteger.valueOf(p), product = modulus.multiply(prime);
+      long inverse = modulus.mod(prime).modInverse(prime).longValue();
+      boolean changed = false;
+      for(int i = 0; i < coeffs.length; i++) {
+         // c + m * ((r - c) / m mod p) is c modulo m and r modulo p
+         long diff = Math.floorMod(image[i] - coeffs[i].mod(prime).longValue(), p);
+         if(diff != 0) {
+            BigInteger coeff = coeffs[i].add(modulus.multiply(BigInteger.valueOf(diff * inverse % p)));
+            coeffs[i] = coeff.shiftLeft(1).compareTo(product) > 0 ? coeff.subtract(product) : coeff;
+            changed = true;
+         }
+      }
+      return changed;
+   }
+
+   /**
+    * Determines if the polynomial divides another exactly over the integers.
+    * @param other the polynomial possibly divisible by this polynomial.
+    * @return whether the polynomial divides the other.
+    */
+   private boolean divides(Polynomial other) {
+      return other.divide(this).map(result -> result.remainder().isZero()).orElse(false);
+   }
+
+   /**
+    * Removes the zero coefficients of the highest powers from the given coefficients.
+    * @param coeffs the coefficients indexed by power.
+    * @return the coefficients without trailing zeroes (the same array if there were none).
+    */
+   private static BigInteger[] trim(BigInteger[] coeffs) {
+      int length = coeffs.length;
+      while(length > 0 && coeffs[length - 1].signum() == 0)
+         length--;
+      return length == coeffs.length ? coeffs : Arrays.copyOf(coeffs, length);
+   }
+
+   /**
+    * Wrapper class that stores the result of polynomial division,
+    * i.e. the quotient and remainder.
+    * @param quotient  The quotient of the division.
+    * @param remainder The remainder of the division.
+    */
+   public record DivisionResult(Polynomial quotient, Polynomial remainder) {}
+}
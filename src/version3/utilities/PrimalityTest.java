@@ -0,0 +1,207 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+
+/**
+ * Class containing static methods to determine whether an integer is prime via the
+ * Baillie-PSW test: trial division by small primes, followed by a strong Fermat
+ * (Miller-Rabin) test to base 2 and a strong Lucas test with Selfridge's parameters.
+ * No composite passing both tests is known, and none exists below 2^64.
+ * @author Nathan Harbison
+ */
+public class PrimalityTest {
+   /** The primes used to trial divide an integer before testing it. */
+   private static final int[] SMALL_PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 53, 59, 61,
+           67, 71, 73, 79, 83, 89, 97, 101, 103, 107, 109, 113, 127, 131, 137, 139, 149, 151, 157, 163, 167,
+           173, 179, 181, 191, 193, 197, 199, 211};
+   /** The bases for which the Miller-Rabin test is deterministic for all integers below 2^32. */
+   private static final long[] INT_BASES = {2, 7, 61};
+
+   /**
+    * Determines if the given integer is prime.
+    * @param num the integer to be tested.
+    * @return whether the integer is prime (with no known exceptions above 2^64), which
+    * is never the case for negative integers.
+    */
+   public static boolean isPrime(BigInteger num) {
+      if(num.signum() < 0)
+         return false;
+      if(num.bitLength() < 31)
+         return isPrime(num.longValue());
+
+      for(int p : SMALL_PRIMES)
+         if(num.mod(BigInteger.valueOf(p)).signum() == 0)
+            return false;
+      return strongFermat(num) && strongLucas(num);
+   }
+
+   /**
+    * Determines if the given integer is prime. Integers below 2^31 are tested via trial
+    * division and a Miller-Rabin test with bases that leave no exceptions in this range,
+    * using only primitive arithmetic, and larger integers via the Baillie-PSW test.
+    * @param num the integer to be tested.
+    * @return whether the integer is prime, which is never the case for negative integers.
+    */
+   public static boolean isPrime(long num) {
+      if(num < 2)
+         return false;
+      if(num >= 1L << 31)
+         return isPrime(BigInteger.valueOf(num));
+
+      for(int p : SMALL_PRIMES) {
+         if(num % p == 0)
+            return num == p;
+      }
+      if(num < 211 * 211)
+         return true;
+
+      long odd = num - 1;
+      int twos = Long.numberOfTrailingZeros(odd);
+      odd >>= twos;
+      for(long base : INT_BASES) {
+         long x = powMod(base % num, odd, num);
+         if(x == 0 || x == 1 || x == num - 1)
+            continue;
+         boolean found = false;
+         for(int r = 1; r < twos && !found; r++) {
+            x = x * x % num;
+            found = x == num - 1;
+         }
+         if(!found)
+            return false;
+      }
+      return true;
+   }
+
+   // ------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Performs a strong Fermat (Miller-Rabin) test to base 2 on the given odd integer.
+    * @param num the odd integer to be tested.
+    * @return whether the integer is a strong probable prime to base 2.
+    */
+   private static boolean strongFermat(BigInteger num) {
+      BigInteger numMinus1 = num.subtract(BigInteger.ONE);
+      int twos = numMinus1.getLowestSetBit();
+      BigInteger x = BigInteger.TWO.modPow(numMinus1.shiftRight(twos), num);
+      if(x.equals(BigInteger.ONE) || x.equals(numMinus1))
+         return true;
+      for(int r = 1; r < twos; r++) {
+         x = x.multiply(x).mod(num);
+         if(x.equals(numMinus1))
+            return true;
+         if(x.equals(BigInteger.ONE))
+            return false;
+      }
+      return false;
+   }
+
+   /**
+    * Performs a strong Lucas test on the given odd integer not divisible by any small prime,
+    * using the Lucas sequences U and V with P = 1 and Q = (1 - D) / 4, where D is the first
+    * of 5, -7, 9, -11, ... whose Jacobi symbol (D / n) is -1. Writing n + 1 = d * 2^s with d
+    * odd, the integer is a strong Lucas probable prime if U_d = 0 or V_(d * 2^r) = 0 for
+    * some 0 <= r < s.
+    * @param num the odd integer to be tested.
+    * @return whether the integer is a strong Lucas probable prime.
+    */
+   private static boolean strongLucas(BigInteger num) {
+      // perfect squares have no D with (D / n) = -1
+      BigInteger sqrt = num.sqrt();
+      if(sqrt.multiply(sqrt).equals(num))
+         return false;
+
+      long d = 5;
+      while(true) {
+         int jacobi = jacobi(BigInteger.valueOf(d), num);
+         if(jacobi == -1)
+            break;
+         if(jacobi == 0 && !BigInteger.valueOf(Math.abs(d)).equals(num))
+            return false;
+         d = d > 0 ? -(d + 2) : -(d - 2);
+      }
+      BigInteger bigD = BigInteger.valueOf(d), q = BigInteger.valueOf((1 - d) / 4);
+
+      BigInteger numPlus1 = num.add(BigInteger.ONE);
+      int twos = numPlus1.getLowestSetBit();
+      BigInteger odd = numPlus1.shiftRight(twos);
+
+      // compute U_k, V_k and Q^k by doubling, from the most significant bit of d
+      BigInteger u = BigInteger.ONE, v = BigInteger.ONE, qPow = q.mod(num);
+      for(int bit = odd.bitLength() - 2; bit >= 0; bit--) {
+         u = u.multiply(v).mod(num);
+         v = v.multiply(v).subtract(qPow.shiftLeft(1)).mod(num);
+         qPow = qPow.multiply(qPow).mod(num);
+         if(odd.testBit(bit)) {
+            BigInteger nextU = halve(u.add(v), num);
+            v = halve(bigD.multiply(u).add(v), num);
+            u = nextU;
+            qPow = qPow.multiply(q).mod(num);
+         }
+      }
+
+      if(u.signum() == 0 || v.signum() == 0)
+         return true;
+      for(int r = 1; r < twos; r++) {
+         v = v.multiply(v).subtract(qPow.shiftLeft(1)).mod(num);
+         if(v.signum() == 0)
+            return true;
+         qPow = qPow.multiply(qPow).mod(num);
+      }
+      return false;
+   }
+
+   /**
+    * Divides the given integer by 2 modulo an odd modulus.
+    * @param num the integer to be halved.
+    * @param mod the odd modulus.
+    * @return half of the integer, modulo the modulus.
+    */
+   private static BigInteger halve(BigInteger num, BigInteger mod) {
+      num = num.mod(mod);
+      return (num.testBit(0) ? num.add(mod) : num).shiftRight(1);
+   }
+
+   /**
+    * Computes the Jacobi symbol (a / n).
+    * @param a the integer on top.
+    * @param n the odd positive integer on the bottom.
+    * @return the Jacobi symbol, which is -1, 0 or 1.
+    */
+   private static int jacobi(BigInteger a, BigInteger n) {
+      a = a.mod(n);
+      int result = 1;
+      while(a.signum() != 0) {
+         int twos = a.getLowestSetBit();
+         a = a.shiftRight(twos);
+         int nMod8 = n.intValue() & 7;
+         if((twos & 1) == 1 && (nMod8 == 3 || nMod8 == 5))
+            result = -result;
+         // quadratic reciprocity
+         if((a.intValue() & 3) == 3 && (nMod8 & 3) == 3)
+            result = -result;
+         BigInteger temp = a;
+         a = n.mod(temp);
+         n = temp;
+      }
+      return n.equals(BigInteger.ONE) ? result : 0;
+   }
+
+   /**
+    * Computes the given base raised to the given power modulo an integer less than 2^31.
+    * @param base the base, less than the modulus.
+    * @param exp the non-negative exponent.
+    * @param mod the modulus.
+    * @return the base raised to the power, modulo the modulus.
+    */
+   private static long powMod(long base, long exp, long mod) {
+      long result = 1;
+      for(; exp > 0; exp >>= 1) {
+         if((exp & 1) == 1)
+            result = result * base % mod;
+         base = base * base % mod;
+      }
+      return result;
+   }
+}
@@ -0,0 +1,210 @@
+package version3.utilities;
+
+import java.util.Arrays;
+
+/**
+ * Class containing static methods giving access to a shared table of the small primes,
+ * found by a segmented sieve of Eratosthenes and grown lazily as larger primes are needed.
+ * The table is bit-packed over a 2 * 3 * 5 * 7 = 210 wheel, storing one bit for each of the
+ * 48 residues coprime to 210 in every block of 210 integers, and is published as an
+ * immutable snapshot so that it can be read by many threads without locking.
+ * @author Nathan Harbison
+ */
+public class PrimeSieve {
+   /** The product of the primes in the wheel. */
+   private static final int WHEEL = 210;
+   /** The primes in the wheel, which are not represented in the table. */
+   private static final int[] WHEEL_PRIMES = {2, 3, 5, 7};
+   /** The residues modulo 210 coprime to 210, in increasing order. */
+   private static final int[] RESIDUES;
+   /** The index of each residue modulo 210 in the list of coprime residues, or -1 if not coprime. */
+   private static final int[] RESIDUE_INDEX;
+   /** The gaps between consecutive coprime residues, i.e. the steps of the wheel. */
+   private static final int[] GAPS;
+   /** The number of integers sieved in each segment, sized to fit in the L1 data cache. */
+   private static final int SEGMENT_SIZE = WHEEL * 64 * 64;
+   /**
+    * The bound on the integers covered by the table when it is first built, which is above
+    * the square root of the largest int, so the first table can sieve every later segment.
+    */
+   private static final int INITIAL_LIMIT = WHEEL * 320;
+   /** The bound on the integers the table can cover. */
+   private static final int MAX_LIMIT = Integer.MAX_VALUE / WHEEL * WHEEL;
+
+   /** The current table of primes, which is replaced (never modified) as it grows. */
+   private static volatile Table table;
+
+   static {
+      RESIDUE_INDEX = new int[WHEEL];
+      int count = 0;
+      for(int r = 0; r < WHEEL; r++)
+         RESIDUE_INDEX[r] = r % 2 == 0 || r % 3 == 0 || r % 5 == 0 || r % 7 == 0 ? -1 : count++;
+      RESIDUES = new int[count];
+      for(int r = 0; r < WHEEL; r++)
+         if(RESIDUE_INDEX[r] != -1)
+            RESIDUES[RESIDUE_INDEX[r]] = r;
+      GAPS = new int[count];
+      for(int i = 0; i < count; i++)
+         GAPS[i] = (i + 1 < count ? RESIDUES[i + 1] : WHEEL + RESIDUES[0]) - RESIDUES[i];
+
+      // the primes needed to sieve the first table are found by trial division
+      int[] basePrimes = new int[0];
+      for(int n = 2; n * n < INITIAL_LIMIT; n++) {
+         boolean prime = true;
+         for(int p : basePrimes)
+            prime &= n % p != 0;
+         if(prime) {
+            basePrimes = Arrays.copyOf(basePrimes, basePrimes.length + 1);
+            basePrimes[basePrimes.length - 1] = n;
+         }
+      }
+      table = grow(new Table(new long[0], 0, WHEEL_PRIMES.clone(), WHEEL_PRIMES.length), basePrimes,
+              basePrimes.length, INITIAL_LIMIT);
+   }
+
+   /**
+    * Determines if the given integer is prime.
+    * @param num the integer to be tested.
+    * @return whether the integer is prime.
+    */
+   public static boolean isPrime(int num) {
+      if(num >= MAX_LIMIT)
+         return PrimalityTest.isPrime(num);
+      if(num < 2)
+         return false;
+      if(num < WHEEL && Arrays.binarySearch(WHEEL_PRIMES, num) >= 0)
+         return true;
+      int index = RESIDUE_INDEX[num % WHEEL];
+      return index != -1 && tableFor(num).isSet(num / WHEEL * RESIDUES.length + index);
+   }
+
+   /**
+    * Finds all primes up to the given bound.
+    * @param bound the (inclusive) bound on the primes.
+    * @return the primes up to the bound, in increasing order.
+    * @throws IllegalArgumentException if the bound is too close to the largest int.
+    */
+   public static int[] primesUpTo(int bound) {
+      if(bound >= MAX_LIMIT)
+         throw new IllegalArgumentException("Error: bound on primes is too large");
+      if(bound < 2)
+         return new int[0];
+      Table current = tableFor(bound);
+      int end = Arrays.binarySearch(current.primes, 0, current.count, bound);
+      return Arrays.copyOf(current.primes, end >= 0 ? end + 1 : -end - 1);
+   }
+
+   // ------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Returns a table covering the given integer, growing the shared table if necessary.
+    * @param num the integer to be covered.
+    * @return a table of the primes covering the integer.
+    */
+   private static Table tableFor(int num) {
+      Table current = table;
+      if(num < current.limit)
+         return current;
+      synchronized(PrimeSieve.class) {
+         current = table;
+         if(num < current.limit)
+            return current;
+         // at least double the table, so that growing to n costs O(n log log n) overall
+         long target = Math.max((long) num + 1, 2L * current.limit);
+         int limit = (int) Math.min((target + WHEEL - 1) / WHEEL * WHEEL, MAX_LIMIT);
+         table = grow(current, current.primes, current.count, limit);
+         return table;
+      }
+   }
+
+   /**
+    * Extends the given table to cover all integers below the given limit, sieving the new
+    * range segment by segment with the given base primes.
+    * @param old the table to be extended.
+    * @param basePrimes the primes in increasing order, including every prime up to the
+    * square root of the limit.
+    * @param baseCount the number of base primes.
+    * @param limit the new limit, a multiple of 210.
+    * @return the extended table.
+    */
+   private static Table grow(Table old, int[] basePrimes, int baseCount, int limit) {
+      long[] bits = Arrays.copyOf(old.bits, (int) (((long) limit / WHEEL * RESIDUES.length + 63) >>> 6));
+      int[] primes = old.primes;
+      int count = old.count;
+
+      for(int low = old.limit; low < limit; low += SEGMENT_SIZE) {
+         int high = (int) Math.min((long) low + SEGMENT_SIZE, limit);
+         long firstBit = (long) low / WHEEL * RESIDUES.length, endBit = (long) high / WHEEL * RESIDUES.length;
+         for(long bit = firstBit; bit < endBit; bit++)
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+         if(low == 0)
+            bits[0] &= ~1L; // 1 is not prime
+
+         // cross off the multiples p * c of each prime past the wheel, with c coprime to 210
+         for(int i = WHEEL_PRIMES.length; i < baseCount; i++) {
+            long p = basePrimes[i];
+            if(p * p >= high)
+               break;
+            long cofactor = Math.max(p, (low + p - 1) / p);
+            int residue = (int) (cofactor % WHEEL);
+            while(RESIDUE_INDEX[residue] == -1) {
+               cofactor++;
+               residue = (residue + 1) % WHEEL;
+            }
+            for(int gap = RESIDUE_INDEX[residue]; p * cofactor < high; gap = (gap + 1) % GAPS.length) {
+               long multiple = p * cofactor;
+               long bit = multiple / WHEEL * RESIDUES.length + RESIDUE_INDEX[(int) (multiple % WHEEL)];
+               bits[(int) (bit >>> 6)] &= ~(1L << bit);
+               cofactor += GAPS[gap];
+            }
+         }
+
+         for(long bit = firstBit; bit < endBit; bit++) {
+            if((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+               continue;
+            if(count == primes.length)
+               primes = Arrays.copyOf(primes, Math.max(2 * count, 64));
+            primes[count++] = (int) (bit / RESIDUES.length * WHEEL + RESIDUES[(int) (bit % RESIDUES.length)]);
+         }
+      }
+      return new Table(bits, limit, primes, count);
+   }
+
+   /**
+    * An immutable table of the primes below some limit.
+    */
+   private static class Table {
+      /** The bits for each integer coprime to 210 below the limit, set if the integer is prime. */
+      private final long[] bits;
+      /** The bound below which all integers are covered by the table. */
+      private final int limit;
+      /** The primes below the limit, in increasing order, followed by unused space. */
+      private final int[] primes;
+      /** The number of primes below the limit. */
+      private final int count;
+
+      /**
+       * Instantiates a table of primes.
+       * @param bits the bits for each integer coprime to 210 below the limit.
+       * @param limit the bound below which all integers are covered by the table.
+       * @param primes the primes below the limit, in increasing order, followed by unused space.
+       * @param count the number of primes below the limit.
+       */
+      private Table(long[] bits, int limit, int[] primes, int count) {
+         this.bits = bits;
+         this.limit = limit;
+         this.primes = primes;
+         this.count = count;
+      }
+
+      /**
+       * Determines if the bit at the given index is set.
+       * @param bit the index of the bit.
+       * @return whether the bit is set.
+       */
+      private boolean isSet(long bit) {
+         return (this.bits[(int) (bit >>> 6)] & (1L << bit)) != 0;
+      }
+   }
+}
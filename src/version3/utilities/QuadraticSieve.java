@@ -0,0 +1,729 @@
+package version3.utilities;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+/**
+ * Class implementing the self-initializing quadratic sieve (SIQS) for finding a divisor of
+ * a composite integer of about 30 to 100 digits, whose running time depends only on the
+ * size of the integer rather than the size of its factors. Relations (Ax + B)^2 - kN =
+ * A * g(x), where g(x) factors over a base of small primes, are collected by sieving g(x)
+ * over an interval in cache-sized blocks. Families of polynomials sharing the same A are
+ * sieved in parallel on the fork-join common pool, switching between the polynomials in a
+ * family cheaply via a Gray code. Once there are more relations than primes in the factor
+ * base, Gaussian elimination over GF(2) finds subsets of relations whose product is a
+ * square, each of which gives a congruence of squares that may split the integer.
+ * @author Nathan Harbison
+ */
+public class QuadraticSieve {
+   /**
+    * The parameters used for integers of each number of digits, interpolated between rows:
+    * the number of digits, the size of the factor base, the number of sieve blocks, and the
+    * number of bits by which the sieve threshold is lowered to allow for small primes and
+    * rounding. Larger integers take a lower threshold, as their relations are rarer, so a
+    * wasted trial division costs less than sieving more polynomials.
+    */
+   private static final int[][] PARAMS = {
+           {30, 200, 1, 4}, {40, 400, 2, 4}, {50, 1500, 2, 4}, {60, 5000, 4, 10},
+           {70, 10000, 6, 16}, {80, 25000, 8, 18}, {90, 40000, 12, 20}, {100, 50000, 16, 22}};
+   /** The smallest and largest number of digits of integers the sieve is used on. */
+   public static final int MIN_DIGITS = 30, MAX_DIGITS = 100;
+   /** The size in bytes of each sieve block, chosen to fit in the L1 data cache. */
+   private static final int BLOCK_SIZE = 1 << 15;
+   /** Primes below this bound are not sieved with, as they contribute little to the logarithms. */
+   private static final int SMALL_PRIME_BOUND = 30;
+   /** The smallest prime that can be used as a factor of A. */
+   private static final int MIN_A_PRIME = 50;
+   /** The number of extra relations collected beyond the size of the factor base. */
+   private static final int EXTRA_RELATIONS = 64;
+   /** The ratio of the bound on large primes in partial relations to the largest factor base prime. */
+   private static final int LARGE_PRIME_RATIO = 100;
+   /** The largest threshold on scaled logarithms, so that reaching it always sets a byte's high bit. */
+   private static final int MAX_THRESHOLD = 120;
+   /** A mask of the high bit of each byte in a long. */
+   private static final long HIGH_BITS = 0x8080808080808080L;
+   /** A view of a byte array as an array of longs, used to scan the sieve 8 locations at a time. */
+   private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+   /** The maximum number of polynomial families sieved before giving up. */
+   private static final int MAX_FAMILIES = 1 << 20;
+   /** The candidate multipliers k considered by the Knuth-Schroeppel function. */
+   private static final int[] MULTIPLIERS = {1, 2, 3, 5, 6, 7, 10, 11, 13, 14, 15, 17, 19, 21, 22, 23,
+           26, 29, 30, 31, 33, 34, 35, 37, 38, 39, 41, 42, 43, 46, 47, 51, 53, 55, 57, 58, 59, 61, 62, 65,
+           66, 67, 69, 70, 71, 73};
+
+   /** The integer being split, and the same integer times the multiplier k. */
+   private final BigInteger num, kNum;
+   /** The factor base: -1, 2, and then the odd primes p for which kN is a square mod p. */
+   private final int[] primes;
+   /** The square roots of kN modulo each prime in the factor base. */
+   private final int[] sqrts;
+   /** The scaled and rounded base 2 logarithms of each prime in the factor base. */
+   private final byte[] logs;
+   /** Whether each prime in the factor base is sieved with, rather than only trial divided by. */
+   private final boolean[] sieved;
+   /** A factor of the integer found while building the factor base, if any. */
+   private BigInteger baseDivisor;
+   /** Half the length of the sieve interval [-M, M), and the number of blocks it is split into. */
+   private final int halfInterval, blocks;
+   /** The bound on the large prime of a partial relation. */
+   private final long largePrimeBound;
+   /**
+    * The minimum sum of scaled logarithms at which a sieve location is trial divided. Each
+    * location starts at 128 minus the threshold, so it is a candidate once its high bit is set.
+    */
+   private final int threshold;
+   /** The number of primes multiplied to form each A, and the indices of the primes they are chosen near. */
+   private int aFactors, aLow, aHigh;
+   /** The base 2 logarithm of the ideal value of A. */
+   private final double aTarget;
+
+   /** The full relations found so far, including those combined from two partial relations. */
+   private final Queue<Relation> relations;
+   /** The partial relations found so far with no matching partner, by their large prime. */
+   private final ConcurrentMap<Long, Relation> partials;
+   /** The values of A that have already been used. */
+   private final Set<BigInteger> usedA;
+
+   /**
+    * Attempts to find a nontrivial divisor of the given odd composite integer, which must
+    * not be a perfect power.
+    * @param num the composite integer to be split.
+    * @return a divisor of the integer strictly between 1 and the integer, or nothing if
+    * none was found or the integer's size is outside of the sieve's range.
+    */
+   public static Optional<BigInteger> findDivisor(BigInteger num) {
+      int digits = num.toString().length();
+      if(digits < MIN_DIGITS || digits > MAX_DIGITS)
+         return Optional.empty();
+      QuadraticSieve sieve = new QuadraticSieve(num, digits);
+      if(sieve.baseDivisor != null)
+         return Optional.of(sieve.baseDivisor);
+      return sieve.run();
+   }
+
+   // ------------------------------------------------------------------------------
+   // Setup
+
+   /**
+    * Sets up the sieve for the given integer, choosing a multiplier and building the factor base.
+    * @param num the integer to be split.
+    * @param digits the number of digits in the integer.
+    */
+   private QuadraticSieve(BigInteger num, int digits) {
+      this.num = num;
+      this.kNum = num.multiply(BigInteger.valueOf(chooseMultiplier(num)));
+      this.relations = new ConcurrentLinkedQueue<>();
+      this.partials = new ConcurrentHashMap<>();
+      this.usedA = ConcurrentHashMap.newKeySet();
+
+      int row = 0;
+      while(row + 2 < PARAMS.length && PARAMS[row + 1][0] <= digits)
+         row++;
+      double frac = Math.min(1, (double) (digits - PARAMS[row][0]) / (PARAMS[row + 1][0] - PARAMS[row][0]));
+      int baseSize = (int) (PARAMS[row][1] + frac * (PARAMS[row + 1][1] - PARAMS[row][1]));
+      double slack = PARAMS[row][3] + frac * (PARAMS[row + 1][3] - PARAMS[row][3]);
+      this.blocks = PARAMS[row][2] * 2;
+      this.halfInterval = this.blocks * BLOCK_SIZE / 2;
+
+      // build the factor base from the primes for which kN is a quadratic residue
+      this.primes = new int[baseSize];
+      this.sqrts = new int[baseSize];
+      this.logs = new byte[baseSize];
+      this.sieved = new boolean[baseSize];
+      this.primes[0] = -1;
+      this.primes[1] = 2;
+
+      // about half of all primes are in the factor base, so estimate the largest
+      int maxPrime = nthPrimeBound(baseSize * 2);
+      // g(x) is at most about M * sqrt(kN / 2) in magnitude over the interval
+      double logG = Math.log(this.halfInterval) / Math.log(2) + (this.kNum.bitLength() - 1) / 2.0;
+      this.largePrimeBound = (long) maxPrime * Math.min(LARGE_PRIME_RATIO, maxPrime);
+      double rawThreshold = logG - Math.log(this.largePrimeBound) / Math.log(2) - slack;
+      double logScale = Math.min(1, MAX_THRESHOLD / rawThreshold);
+      this.threshold = (int) (rawThreshold * logScale);
+
+      int size = 2;
+      for(int bound = baseSize * 32; size < baseSize; bound *= 2) {
+         size = 2;
+         for(int p : PrimeSieve.primesUpTo(bound)) {
+            if(p == 2)
+               continue;
+            long kNumMod = this.kNum.mod(BigInteger.valueOf(p)).longValue();
+            if(this.num.mod(BigInteger.valueOf(p)).signum() == 0) {
+               this.baseDivisor = BigInteger.valueOf(p);
+               break;
+            }
+            if(kNumMod != 0 && powMod(kNumMod, (p - 1) / 2, p) != 1)
+               continue;
+            this.primes[size] = p;
+            this.sqrts[size] = (int) sqrtMod(kNumMod, p);
+            this.logs[size] = (byte) Math.round(Math.log(p) / Math.log(2) * logScale);
+            this.sieved[size] = p >= SMALL_PRIME_BOUND && kNumMod != 0;
+            if(++size == baseSize)
+               break;
+         }
+         if(this.baseDivisor != null)
+            break;
+      }
+
+      this.aTarget = (this.kNum.shiftLeft(1).bitLength() - 1) / 2.0 - Math.log(this.halfInterval) / Math.log(2);
+      chooseAFactors();
+   }
+
+   /**
+    * Chooses the number of primes multiplied to form each A, and the range of the factor
+    * base they are drawn from, so that their product is near the ideal value of A.
+    */
+   private void chooseAFactors() {
+      int maxPrime = this.primes[this.primes.length - 1];
+      double idealBits = Math.log(Math.min(2000, maxPrime / 4.0)) / Math.log(2);
+      this.aFactors = Math.max(2, (int) Math.round(this.aTarget / idealBits));
+      double primeBits = this.aTarget / this.aFactors;
+      this.aLow = this.primes.length;
+      this.aHigh = 0;
+      for(int i = 2; i < this.primes.length; i++) {
+         double bits = Math.log(this.primes[i]) / Math.log(2);
+         if(this.sieved[i] && this.primes[i] >= MIN_A_PRIME && Math.abs(bits - primeBits) <= 1) {
+            this.aLow = Math.min(this.aLow, i);
+            this.aHigh = Math.max(this.aHigh, i + 1);
+         }
+      }
+   }
+
+   /**
+    * Chooses the multiplier k maximizing the Knuth-Schroeppel function, which estimates how
+    * many small primes kN is a quadratic residue modulo, and so how smooth g(x) tends to be.
+    * @param num the integer to be split.
+    * @return the chosen multiplier.
+    */
+   private static int chooseMultiplier(BigInteger num) {
+      int[] smallPrimes = PrimeSieve.primesUpTo(1000);
+      int best = 1;
+      double bestScore = Double.NEGATIVE_INFINITY;
+      for(int k : MULTIPLIERS) {
+         BigInteger kNum = num.multiply(BigInteger.valueOf(k));
+         int mod8 = kNum.intValue() & 7;
+         double score = -0.5 * Math.log(k) + (mod8 == 1 ? 2 : mod8 == 5 ? 1 : 0.5) * Math.log(2);
+         for(int p : smallPrimes) {
+            if(p == 2)
+               continue;
+            long kNumMod = kNum.mod(BigInteger.valueOf(p)).longValue();
+            if(kNumMod == 0)
+               score += Math.log(p) / p;
+            else if(powMod(kNumMod, (p - 1) / 2, p) == 1)
+               score += 2 * Math.log(p) / (p - 1);
+         }
+         if(score > bestScore) {
+            bestScore = score;
+            best = k;
+         }
+      }
+      return best;
+   }
+
+   // ------------------------------------------------------------------------------
+   // Sieving
+
+   /**
+    * Collects relations until there are enough to find a square, sieving families of
+    * polynomials in parallel, then combines them into congruences of squares.
+    * @return a divisor of the integer strictly between 1 and the integer, or nothing if
+    * none was found.
+    */
+   private Optional<BigInteger> run() {
+      if(this.aLow >= this.aHigh || this.aHigh - this.aLow < this.aFactors)
+         return Optional.empty();
+      int target = this.primes.length + EXTRA_RELATIONS;
+      int batch = 2 * ForkJoinPool.getCommonPoolParallelism();
+      for(int family = 0; this.relations.size() < target; family += batch) {
+         if(family >= MAX_FAMILIES)
+            return Optional.empty();
+         IntStream.range(family, family + batch).parallel().forEach(seed -> {
+            if(this.relations.size() < target)
+               sieveFamily(seed);
+         });
+      }
+      return findSquares(new ArrayList<>(this.relations));
+   }
+
+   /**
+    * Sieves every polynomial in the family with a randomly chosen A, adding the relations found.
+    * @param seed the seed used to choose A.
+    */
+   private void sieveFamily(int seed) {
+      Random rand = new Random(seed);
+      int[] aPrimes = chooseA(rand);
+      if(aPrimes == null)
+         return;
+      BigInteger a = BigInteger.ONE;
+      for(int i : aPrimes)
+         a = a.multiply(BigInteger.valueOf(this.primes[i]));
+
+      // B_l = (A / q_l) * gamma_l, where gamma_l = sqrt(kN) * (A / q_l)^-1 mod q_l, so that
+      // B = sum of +-B_l satisfies B^2 = kN mod A for every choice of signs
+      BigInteger[] bTerms = new BigInteger[this.aFactors];
+      BigInteger b = BigInteger.ZERO;
+      for(int l = 0; l < this.aFactors; l++) {
+         int q = this.primes[aPrimes[l]];
+         BigInteger aDivQ = a.divide(BigInteger.valueOf(q));
+         long gamma = this.sqrts[aPrimes[l]] * modInverse(aDivQ.mod(BigInteger.valueOf(q)).longValue(), q) % q;
+         if(gamma > q / 2)
+            gamma = q - gamma;
+         bTerms[l] = aDivQ.multiply(BigInteger.valueOf(gamma));
+         b = b.add(bTerms[l]);
+      }
+
+      // the roots of g(x) modulo each prime are A^-1 * (+-sqrt(kN) - B), and switching
+      // between polynomials shifts them all by 2 * B_l * A^-1
+      int size = this.primes.length;
+      int[] root1 = new int[size], root2 = new int[size];
+      int[][] shifts = new int[this.aFactors][size];
+      boolean[] inA = new boolean[size];
+      for(int i : aPrimes)
+         inA[i] = true;
+      for(int i = 2; i < size; i++) {
+         if(!this.sieved[i] || inA[i])
+            continue;
+         int p = this.primes[i];
+         BigInteger bigP = BigInteger.valueOf(p);
+         long aInv = modInverse(a.mod(bigP).longValue(), p);
+         long bMod = b.mod(bigP).longValue();
+         root1[i] = (int) (aInv * Math.floorMod(this.sqrts[i] - bMod, p) % p);
+         root2[i] = (int) (aInv * Math.floorMod(-this.sqrts[i] - bMod, p) % p);
+         for(int l = 0; l < this.aFactors; l++)
+            shifts[l][i] = (int) (2 * bTerms[l].mod(bigP).longValue() * aInv % p);
+      }
+
+      byte[] sieve = new byte[BLOCK_SIZE];
+      int polys = 1 << (this.aFactors - 1);
+      for(int poly = 0; poly < polys; poly++) {
+         if(poly > 0) {
+            // Gray code: B_{i+1} = B_i + 2 * (-1)^ceil(i / 2^(l+1)) * B_l, where 2^l || i
+            int l = Integer.numberOfTrailingZeros(poly);
+            boolean negate = ((poly + (1 << (l + 1)) - 1) >> (l + 1) & 1) == 1;
+            b = negate ? b.subtract(bTerms[l].shiftLeft(1)) : b.add(bTerms[l].shiftLeft(1));
+            for(int i = 2; i < size; i++) {
+               if(!this.sieved[i] || inA[i])
+                  continue;
+               int p = this.primes[i], shift = negate ? shifts[l][i] : p - shifts[l][i];
+               root1[i] = (root1[i] + shift) % p;
+               root2[i] = (root2[i] + shift) % p;
+            }
+         }
+         BigInteger c = b.multiply(b).subtract(this.kNum).divide(a);
+         for(int block = 0; block < this.blocks; block++)
+            sieveBlock(sieve, block, root1, root2, inA, a, b, c, aPrimes);
+      }
+   }
+
+   /**
+    * Chooses the primes whose product forms a new value of A near the ideal value: all but
+    * one are random, and the last brings the product as close to the ideal as possible.
+    * @param rand the source of randomness.
+    * @return the indices of the chosen primes in the factor base, or null if no new value of
+    * A was found.
+    */
+   private int[] chooseA(Random rand) {
+      for(int attempt = 0; attempt < 16; attempt++) {
+         int[] chosen = new int[this.aFactors];
+         double bits = 0;
+         for(int l = 0; l < this.aFactors - 1; l++) {
+            int ind;
+            do {
+               ind = this.aLow + rand.nextInt(this.aHigh - this.aLow);
+            } while(contains(chosen, l, ind));
+            chosen[l] = ind;
+            bits += Math.log(this.primes[ind]) / Math.log(2);
+         }
+
+         // find the prime closest to the remaining ratio
+         double remaining = Math.pow(2, this.aTarget - bits);
+         int last = -1;
+         for(int i = 2; i < this.primes.length; i++) {
+            if(!this.sieved[i] || this.primes[i] < MIN_A_PRIME || contains(chosen, this.aFactors - 1, i))
+               continue;
+            if(last == -1 || Math.abs(this.primes[i] - remaining) < Math.abs(this.primes[last] - remaining))
+               last = i;
+         }
+         if(last == -1)
+            continue;
+         chosen[this.aFactors - 1] = last;
+
+         BigInteger a = BigInteger.ONE;
+         for(int i : chosen)
+            a = a.multiply(BigInteger.valueOf(this.primes[i]));
+         if(this.usedA.add(a))
+            return chosen;
+      }
+      return null;
+   }
+
+   /**
+    * Sieves a single block of the interval for the polynomial g(x) = Ax^2 + 2Bx + C, adding
+    * the relations found at locations whose sum of logarithms reaches the threshold.
+    * @param sieve the array of sums of logarithms, reused between blocks.
+    * @param block the index of the block within the interval.
+    * @param root1 the first root of g(x) modulo each prime.
+    * @param root2 the second root of g(x) modulo each prime.
+    * @param inA whether each prime divides A.
+    * @param a the coefficient A.
+    * @param b the coefficient B.
+    * @param c the coefficient C = (B^2 - kN) / A.
+    * @param aPrimes the indices of the primes dividing A.
+    */
+   private void sieveBlock(byte[] sieve, int block, int[] root1, int[] root2, boolean[] inA,
+                           BigInteger a, BigInteger b, BigInteger c, int[] aPrimes) {
+      Arrays.fill(sieve, (byte) (128 - this.threshold));
+      long start = (long) block * BLOCK_SIZE - this.halfInterval; // x at the start of the block
+      for(int i = 2; i < this.primes.length; i++) {
+         if(!this.sieved[i] || inA[i])
+            continue;
+         int p = this.primes[i];
+         byte log = this.logs[i];
+         int first1 = (int) Math.floorMod(root1[i] - start, (long) p);
+         int first2 = (int) Math.floorMod(root2[i] - start, (long) p);
+         for(int j = first1; j < BLOCK_SIZE; j += p)
+            sieve[j] += log;
+         if(first2 != first1)
+            for(int j = first2; j < BLOCK_SIZE; j += p)
+               sieve[j] += log;
+      }
+
+      for(int j = 0; j < BLOCK_SIZE; j += 8) {
+         if(((long) LONG_VIEW.get(sieve, j) & HIGH_BITS) == 0)
+            continue;
+         for(int k = j; k < j + 8; k++)
+            if(sieve[k] < 0)
+               trialDivide(start + k, root1, root2, inA, a, b, c, aPrimes);
+      }
+   }
+
+   /**
+    * Trial divides g(x) by the factor base, recording a full relation if it factors
+    * completely, or a partial relation if the remaining cofactor is a single large prime.
+    * @param x the location to be trial divided.
+    * @param root1 the first root of g(x) modulo each prime.
+    * @param root2 the second root of g(x) modulo each prime.
+    * @param inA whether each prime divides A.
+    * @param a the coefficient A.
+    * @param b the coefficient B.
+    * @param c the coefficient C = (B^2 - kN) / A.
+    * @param aPrimes the indices of the primes dividing A.
+    */
+   private void trialDivide(long x, int[] root1, int[] root2, boolean[] inA,
+                            BigInteger a, BigInteger b, BigInteger c, int[] aPrimes) {
+      BigInteger bigX = BigInteger.valueOf(x);
+      BigInteger g = a.multiply(bigX).add(b.shiftLeft(1)).multiply(bigX).add(c);
+      if(g.signum() == 0)
+         return;
+
+      List<Integer> factors = new ArrayList<>();
+      for(int i : aPrimes)
+         factors.add(i);
+      if(g.signum() < 0) {
+         factors.add(0);
+         g = g.negate();
+      }
+      int twos = g.getLowestSetBit();
+      for(int k = 0; k < twos; k++)
+         factors.add(1);
+      g = g.shiftRight(twos);
+
+      for(int i = 2; i < this.primes.length; i++) {
+         int p = this.primes[i];
+         if(this.sieved[i] && !inA[i]) {
+            long xMod = Math.floorMod(x, (long) p);
+            if(xMod != root1[i] && xMod != root2[i])
+               continue;
+         }
+         BigInteger bigP = BigInteger.valueOf(p);
+         BigInteger[] quotRem = g.divideAndRemainder(bigP);
+         while(quotRem[1].signum() == 0) {
+            factors.add(i);
+            g = quotRem[0];
+            quotRem = g.divideAndRemainder(bigP);
+         }
+      }
+
+      Relation relation = new Relation(a.multiply(bigX).add(b), factors.stream().mapToInt(Integer::intValue).toArray(),
+              BigInteger.ONE);
+      if(g.equals(BigInteger.ONE))
+         this.relations.add(relation);
+      else if(g.bitLength() < 63 && g.longValue() < this.largePrimeBound) {
+         // two partial relations with the same large prime L combine into a full relation,
+         // as their product is divisible by L^2
+         Relation partner = this.partials.putIfAbsent(g.longValue(), relation);
+         if(partner != null)
+            this.relations.add(new Relation(partner.y.multiply(relation.y).mod(this.kNum),
+                    concat(partner.factors, relation.factors), g));
+      }
+   }
+
+   // ------------------------------------------------------------------------------
+   // Linear algebra
+
+   /**
+    * Finds subsets of the relations whose product is a square via Gaussian elimination over
+    * GF(2) on their bit-packed exponent vectors, and tries each as a congruence of squares.
+    * Relations that cannot be in any such subset are filtered out first, and only the primes
+    * still dividing some relation to an odd power are given a column.
+    * @param rels the relations found.
+    * @return a divisor of the integer strictly between 1 and the integer, or nothing if
+    * every congruence of squares was trivial.
+    */
+   private Optional<BigInteger> findSquares(List<Relation> rels) {
+      rels = removeSingletons(rels);
+      int[] colOf = new int[this.primes.length];
+      Arrays.fill(colOf, -1);
+      int cols = 0;
+      for(Relation rel : rels)
+         for(int f : rel.oddFactors)
+            if(colOf[f] == -1)
+               colOf[f] = cols++;
+      // only a few more relations than columns are needed to guarantee as many dependencies
+      if(rels.size() > cols + EXTRA_RELATIONS)
+         rels = rels.subList(0, cols + EXTRA_RELATIONS);
+      int rows = rels.size();
+      int colWords = (cols + 63) >>> 6, width = colWords + ((rows + 63) >>> 6);
+
+      // each row holds the relation's exponents mod 2, followed by an identity matrix
+      // recording which relations have been added into it
+      long[][] matrix = new long[rows][width];
+      for(int r = 0; r < rows; r++) {
+         for(int f : rels.get(r).oddFactors)
+            matrix[r][colOf[f] >>> 6] |= 1L << colOf[f];
+         matrix[r][colWords + (r >>> 6)] |= 1L << r;
+      }
+
+      boolean[] isPivot = new boolean[rows];
+      for(int col = 0; col < cols; col++) {
+         int word = col >>> 6;
+         long bit = 1L << col;
+         int pivot = -1;
+         for(int r = 0; r < rows && pivot == -1; r++)
+            if(!isPivot[r] && (matrix[r][word] & bit) != 0)
+               pivot = r;
+         if(pivot == -1)
+            continue;
+         isPivot[pivot] = true;
+         long[] pivotRow = matrix[pivot];
+         // only the rows that may still become dependencies need the column cleared
+         for(int r = 0; r < rows; r++) {
+            if(isPivot[r] || (matrix[r][word] & bit) == 0)
+               continue;
+            long[] row = matrix[r];
+            for(int w = word; w < width; w++)
+               row[w] ^= pivotRow[w];
+         }
+      }
+
+      // every row that was never a pivot has been reduced to zero, giving a dependency
+      for(int r = 0; r < rows; r++) {
+         if(isPivot[r])
+            continue;
+         List<Relation> subset = new ArrayList<>();
+         for(int k = 0; k < rows; k++)
+            if((matrix[r][colWords + (k >>> 6)] & (1L << k)) != 0)
+               subset.add(rels.get(k));
+         BigInteger gcd = congruenceOfSquares(subset);
+         if(!gcd.equals(BigInteger.ONE) && !gcd.equals(this.num))
+            return Optional.of(gcd);
+      }
+      return Optional.empty();
+   }
+
+   /**
+    * Repeatedly removes the relations divisible to an odd power by a prime that divides no
+    * other relation to an odd power, as they cannot be in a subset whose product is a square.
+    * @param rels the relations found.
+    * @return the relations that remain.
+    */
+   private List<Relation> removeSingletons(List<Relation> rels) {
+      int[] counts = new int[this.primes.length];
+      for(Relation rel : rels)
+         for(int f : rel.oddFactors)
+            counts[f]++;
+      for(boolean removed = true; removed; ) {
+         removed = false;
+         List<Relation> kept = new ArrayList<>(rels.size());
+         for(Relation rel : rels) {
+            boolean singleton = false;
+            for(int f : rel.oddFactors)
+               singleton |= counts[f] == 1;
+            if(!singleton) {
+               kept.add(rel);
+               continue;
+            }
+            for(int f : rel.oddFactors)
+               counts[f]--;
+            removed = true;
+         }
+         rels = kept;
+      }
+      return rels;
+   }
+
+   /**
+    * Computes X = prod y and Y = sqrt(prod (y^2 - kN)) modulo the integer for the given
+    * subset of relations, whose product of y^2 - kN is a square, so that X^2 = Y^2.
+    * @param subset the relations in the subset.
+    * @return gcd(X - Y, N), which may be a nontrivial divisor of the integer.
+    */
+   private BigInteger congruenceOfSquares(List<Relation> subset) {
+      int[] exps = new int[this.primes.length];
+      BigInteger x = BigInteger.ONE, y = BigInteger.ONE;
+      for(Relation rel : subset) {
+         x = x.multiply(rel.y).mod(this.num);
+         y = y.multiply(rel.largePrime).mod(this.num);
+         for(int f : rel.factors)
+            exps[f]++;
+      }
+      for(int i = 1; i < exps.length; i++)
+         if(exps[i] > 0)
+            y = y.multiply(BigInteger.valueOf(this.primes[i]).modPow(BigInteger.valueOf(exps[i] / 2), this.num))
+                    .mod(this.num);
+      return x.subtract(y).gcd(this.num);
+   }
+
+   // ------------------------------------------------------------------------------
+   // Helper methods
+
+   /**
+    * Computes an upper bound on the nth prime, n(ln n + ln ln n), valid for n of at least 6.
+    * @param n the index of the prime.
+    * @return an upper bound on the nth prime.
+    */
+   private static int nthPrimeBound(int n) {
+      return (int) (n * (Math.log(n) + Math.log(Math.log(n))));
+   }
+
+   /**
+    * Computes the given base raised to the given power modulo a prime less than 2^31.
+    * @param base the base, less than the modulus.
+    * @param exp the non-negative exponent.
+    * @param mod the modulus.
+    * @return the base raised to the power, modulo the modulus.
+    */
+   private static long powMod(long base, long exp, long mod) {
+      long result = 1;
+      for(base %= mod; exp > 0; exp >>= 1) {
+         if((exp & 1) == 1)
+            result = result * base % mod;
+         base = base * base % mod;
+      }
+      return result;
+   }
+
+   /**
+    * Computes the inverse of the given integer modulo a prime less than 2^31.
+    * @param num the integer to be inverted, not divisible by the prime.
+    * @param mod the prime modulus.
+    * @return the inverse of the integer modulo the prime.
+    */
+   private static long modInverse(long num, long mod) {
+      return powMod(num, mod - 2, mod);
+   }
+
+   /**
+    * Computes a square root of the given quadratic residue modulo an odd prime less than
+    * 2^31 via the Tonelli-Shanks algorithm.
+    * @param num the quadratic residue, less than the prime.
+    * @param p the prime modulus.
+    * @return a square root of the residue modulo the prime.
+    */
+   private static long sqrtMod(long num, long p) {
+      if(num == 0)
+         return 0;
+      int twos = Long.numberOfTrailingZeros(p - 1);
+      long odd = (p - 1) >> twos;
+      long nonResidue = 2;
+      while(powMod(nonResidue, (p - 1) / 2, p) != p - 1)
+         nonResidue++;
+
+      long root = powMod(num, (odd + 1) / 2, p), t = powMod(num, odd, p), z = powMod(nonResidue, odd, p);
+      for(int m = twos; t != 1; ) {
+         int i = 0;
+         for(long sq = t; sq != 1; sq = sq * sq % p)
+            i++;
+         long scale = z;
+         for(int k = 0; k < m - i - 1; k++)
+            scale = scale * scale % p;
+         root = root * scale % p;
+         z = scale * scale % p;
+         t = t * z % p;
+         m = i;
+      }
+      return root;
+   }
+
+   /**
+    * Determines if the given value is among the first entries of an array.
+    * @param arr the array to be searched.
+    * @param len the number of entries to be searched.
+    * @param val the value to be found.
+    * @return whether the value is among the first len entries.
+    */
+   private static boolean contains(int[] arr, int len, int val) {
+      for(int i = 0; i < len; i++)
+         if(arr[i] == val)
+            return true;
+      return false;
+   }
+
+   /**
+    * Concatenates two arrays.
+    * @param first the first array.
+    * @param second the second array.
+    * @return an array with the entries of the first array followed by those of the second.
+    */
+   private static int[] concat(int[] first, int[] second) {
+      int[] result = Arrays.copyOf(first, first.length + second.length);
+      System.arraycopy(second, 0, result, first.length, second.length);
+      return result;
+   }
+
+   /**
+    * A relation y^2 = L^2 * prod p_i (mod kN), where each p_i is in the factor base.
+    */
+   private static class Relation {
+      /** The value y, whose square minus kN factors over the factor base. */
+      private final BigInteger y;
+      /** The indices in the factor base of each prime factor, repeated by multiplicity. */
+      private final int[] factors;
+      /** The large prime L appearing squared, or 1 if there is none. */
+      private final BigInteger largePrime;
+      /** The indices in the factor base of the prime factors with odd exponents, in increasing order. */
+      private final int[] oddFactors;
+
+      /**
+       * Instantiates a relation.
+       * @param y the value whose square minus kN factors over the factor base.
+       * @param factors the indices in the factor base of each prime factor, repeated by multiplicity.
+       * @param largePrime the large prime appearing squared, or 1 if there is none.
+       */
+      private Relation(BigInteger y, int[] factors, BigInteger largePrime) {
+         this.y = y;
+         this.factors = factors;
+         this.largePrime = largePrime;
+
+         int[] sorted = factors.clone();
+         Arrays.sort(sorted);
+         int[] odd = new int[sorted.length];
+         int count = 0;
+         for(int i = 0; i < sorted.length; ) {
+            int j = i + 1;
+            while(j < sorted.length && sorted[j] == sorted[i])
+               j++;
+            if((j - i) % 2 == 1)
+               odd[count++] = sorted[i];
+            i = j;
+         }
+         this.oddFactors = Arrays.copyOf(odd, count);
+      }
+   }
+}
@@ -0,0 +1,176 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Class that lazily generates the possible rational roots p/q and -p/q of a polynomial, where p is
+ * a factor of its constant coefficient and q is a factor of its leading coefficient. Only
+ * coprime pairs (p, q) are generated, so each candidate is produced exactly once and in
+ * simplest form, without having to store the candidates that came before it. Candidates
+ * are generated in a configurable order, and those lying outside of the polynomial's
+ * root bounds (if given) are skipped.
+ * @author Nathan Harbison
+ */
+public class RationalCandidates implements Iterator<Fraction> {
+   /**
+    * The possible orders in which candidates are generated. Each candidate p/q is
+    * immediately followed by -p/q.
+    */
+   public enum Order {
+      /** In order of increasing height |p| + q. */
+      HEIGHT,
+      /** In order of increasing q, and then increasing |p| for candidates with the same q. */
+      DENOMINATOR
+   }
+
+   /** The distinct positive factors of the constant and leading coefficients, in increasing order. */
+   private final BigInteger[] nums, denoms;
+   /** The order in which the candidates are generated. */
+   private final Order order;
+   /** The bounds on the roots of the polynomial, or null if candidates are not to be pruned. */
+   private final RootBounds bounds;
+
+   /** For candidates by height, the next candidate (p, q) for each value of q, ordered by height. */
+   private final PriorityQueue<Pair> byHeight;
+   /** For candidates by denominator, the indices of the next candidate (p, q). */
+   private int numInd, denomInd;
+   /** The candidates that have been generated but not yet returned. */
+   private final Deque<Fraction> pending;
+
+   /**
+    * Instantiates a generator of the possible rational roots of a polynomial with
+    * the given leading and constant coefficients.
+    * @param firstCoeff the coefficient of the first term in the polynomial.
+    * @param lastCoeff the coefficient of the last term in the polynomial.
+    * @param order the order in which candidates are generated.
+    * @param bounds the bounds on the roots of the polynomial, or null if all candidates
+    * are to be generated.
+    */
+   public RationalCandidates(BigInteger firstCoeff, BigInteger lastCoeff, Order order, RootBounds bounds) {
+      this.nums = distinctFactors(lastCoeff);
+      this.denoms = distinctFactors(firstCoeff);
+      this.order = order;
+      this.bounds = bounds;
+      this.pending = new ArrayDeque<>(2);
+      this.byHeight = new PriorityQueue<>();
+      if(order == Order.HEIGHT && this.nums.length > 0)
+         for(int i = 0; i < this.denoms.length; i++)
+            this.byHeight.add(new Pair(0, i));
+   }
+
+   /**
+    * Determines if there are any more candidates to be generated.
+    * @return whether there is another candidate.
+    */
+   @Override
+   public boolean hasNext() {
+      while(this.pending.isEmpty()) {
+         Pair pair = nextPair();
+         if(pair == null)
+            return false;
+
+         BigInteger p = this.nums[pair.numInd], q = this.denoms[pair.denomInd];
+         if(!p.gcd(q).equals(BigInteger.ONE)) // not in simplest form, so generated by another pair
+            continue;
+         Fraction pos = new Fraction(p, q), neg = pos.inverse();
+         if(this.bounds == null || this.bounds.contains(pos))
+            this.pending.add(pos);
+         if(this.bounds == null || this.bounds.contains(neg))
+            this.pending.add(neg);
+      }
+      return true;
+   }
+
+   /**
+    * Returns the next candidate.
+    * @return the next possible rational root.
+    * @throws NoSuchElementException if there are no more candidates.
+    */
+   @Override
+   public Fraction next() {
+      if(!hasNext())
+         throw new NoSuchElementException();
+      return this.pending.poll();
+   }
+
+   /**
+    * Finds the next pair of factors (p, q), in the generator's order, that may be within
+    * the root bounds. Once p/q exceeds the upper root bound, larger values of p are
+    * skipped for that value of q.
+    * @return the indices of the next pair, or null if there are none.
+    */
+   private Pair nextPair() {
+      if(this.order == Order.HEIGHT) {
+         Pair pair = this.byHeight.poll();
+         if(pair == null)
+            return null;
+         if(pair.numInd + 1 < this.nums.length && !exceedsBound(pair.numInd + 1, pair.denomInd))
+            this.byHeight.add(new Pair(pair.numInd + 1, pair.denomInd));
+         return pair;
+      }
+
+      while(this.denomInd < this.denoms.length) {
+         if(this.numInd < this.nums.length && !exceedsBound(this.numInd, this.denomInd))
+            return new Pair(this.numInd++, this.denomInd);
+         this.numInd = 0;
+         this.denomInd++;
+      }
+      return null;
+   }
+
+   /**
+    * Determines if the candidate p/q given by the indices of its factors is larger
+    * than the upper bound on the magnitude of the polynomial's roots.
+    * @param numInd the index of p.
+    * @param denomInd the index of q.
+    * @return whether p/q is larger than the upper root bound.
+    */
+   private boolean exceedsBound(int numInd, int denomInd) {
+      if(this.bounds == null)
+         return false;
+      double magnitude = this.nums[numInd].doubleValue() / this.denoms[denomInd].doubleValue();
+      return magnitude > this.bounds.getUpper();
+   }
+
+   /**
+    * Finds the distinct positive factors of the given integer, in increasing order.
+    * @param num the integer to be factored.
+    * @return the distinct positive factors of the integer.
+    */
+   private static BigInteger[] distinctFactors(BigInteger num) {
+      return Functions.findFactors(num).toArray(new BigInteger[0]);
+   }
+
+   /**
+    * The indices of a pair of factors (p, q) giving the candidate p/q, ordered by
+    * height |p| + q.
+    */
+   private class Pair implements Comparable<Pair> {
+      /** The indices of p and q, within the factors of the constant and leading coefficients. */
+      private final int numInd, denomInd;
+      /** The height of the candidate, |p| + q. */
+      private final BigInteger height;
+
+      /**
+       * Instantiates a pair of factors, given their indices.
+       * @param numInd the index of p.
+       * @param denomInd the index of q.
+       */
+      private Pair(int numInd, int denomInd) {
+         this.numInd = numInd;
+         this.denomInd = denomInd;
+         this.height = nums[numInd].add(denoms[denomInd]);
+      }
+
+      /**
+       * Compares the heights of the candidates given by this and another pair.
+       * @param pair the pair to be compared.
+       * @return -1, 0, 1 if this pair's height is less than, equal to, or greater than the other's.
+       */
+      @Override
+      public int compareTo(Pair pair) {
+         return this.height.compareTo(pair.height);
+      }
+   }
+}
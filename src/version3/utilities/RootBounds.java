@@ -0,0 +1,154 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+
+/**
+ * Class describing where the real roots of a polynomial with integer coefficients
+ * can lie, used to prune the search for its rational roots. The magnitude of
+ * every nonzero root is bounded above by the smaller of the Cauchy and Fujiwara
+ * bounds of the polynomial, and below by the reciprocal of the same bound for the
+ * reversed polynomial. Descartes' rule of signs determines whether the polynomial
+ * can have any positive or negative roots at all.
+ * @author Nathan Harbison
+ */
+public class RootBounds {
+   /** Relative slack applied to the bounds, to absorb floating point rounding. */
+   private static final double SLACK = 1e-9;
+
+   /** The lower and upper bounds on the magnitude of a nonzero root. */
+   private final double lower, upper;
+   /** Whether the polynomial can have positive or negative roots, respectively. */
+   private final boolean hasPosRoots, hasNegRoots;
+
+   /**
+    * Computes the bounds on the roots of the polynomial with the given coefficients.
+    * @param coeffs the coefficients of the polynomial, in order of decreasing power.
+    */
+   public RootBounds(BigInteger[] coeffs) {
+      this(densePowers(coeffs), coeffs);
+   }
+
+   /**
+    * Computes the bounds on the roots of the polynomial with the given terms, so that
+    * sparse polynomials are bounded in time proportional to their number of terms.
+    * @param powers the powers of the terms, in decreasing order.
+    * @param coeffs the coefficients of the terms, in the same order as their powers.
+    */
+   public RootBounds(int[] powers, BigInteger[] coeffs) {
+      this.upper = magnitudeBound(powers, coeffs, false) * (1 + SLACK);
+      this.lower = 1 / magnitudeBound(powers, coeffs, true) * (1 - SLACK);
+
+      // Descartes' rule of signs: the number of positive roots is at most the number of
+      // sign changes in the coefficients of f(x), and the number of negative roots is at
+      // most the number of sign changes in the coefficients of f(-x)
+      int posChanges = 0, negChanges = 0;
+      int lastSign = 0, lastNegSign = 0;
+      for(int i = 0; i < coeffs.length; i++) {
+         int sign = coeffs[i].signum();
+         if(sign == 0)
+            continue;
+         int negSign = powers[i] % 2 == 0 ? sign : -sign;
+         if(lastSign != 0 && sign != lastSign)
+            posChanges++;
+         if(lastNegSign != 0 && negSign != lastNegSign)
+            negChanges++;
+         lastSign = sign;
+         lastNegSign = negSign;
+      }
+      this.hasPosRoots = posChanges > 0;
+      this.hasNegRoots = negChanges > 0;
+   }
+
+   /**
+    * Determines if the given nonzero rational number lies within the bounds, i.e. if it
+    * could possibly be a root of the polynomial.
+    * @param root the possible root.
+    * @return whether the possible root lies within the bounds.
+    */
+   public boolean contains(Fraction root) {
+      int sign = root.compareTo(Fraction.ZERO);
+      if((sign > 0 && !this.hasPosRoots) || (sign < 0 && !this.hasNegRoots))
+         return false;
+
+      double magnitude = Math.abs(root.doubleValue());
+      if(Double.isNaN(magnitude))
+         return true;
+      return this.lower <= magnitude && magnitude <= this.upper;
+   }
+
+   /**
+    * Returns the upper bound on the magnitude of any root of the polynomial.
+    * @return the upper bound on the magnitude of a root.
+    */
+   public double getUpper() {
+      return this.upper;
+   }
+
+   /**
+    * Returns the lower bound on the magnitude of any nonzero root of the polynomial.
+    * @return the lower bound on the magnitude of a nonzero root.
+    */
+   public double getLower() {
+      return this.lower;
+   }
+
+   /**
+    * Computes an upper bound on the magnitude of the roots of the polynomial with
+    * the given terms (or its reversal, whose roots are the reciprocals of the
+    * polynomial's nonzero roots), as the minimum of the Cauchy bound
+    * 1 + max |a_i / a_0| and the Fujiwara bound
+    * 2 * max(|a_1 / a_0|, |a_2 / a_0|^(1/2), ..., |a_n / 2a_0|^(1/n)),
+    * where a_i is the coefficient i powers below the leading one.
+    * @param powers the powers of the terms, in decreasing order.
+    * @param coeffs the coefficients of the terms, in the same order as their powers.
+    * @param reverse whether to bound the roots of the reversed polynomial instead.
+    * @return the upper bound on the magnitude of a root, which may be infinite.
+    */
+   private static double magnitudeBound(int[] powers, BigInteger[] coeffs, boolean reverse) {
+      // ignore zero roots, which reversing the polynomial would turn into a zero leading coefficient
+      int first = 0, last = coeffs.length - 1;
+      while(last > first && coeffs[last].signum() == 0)
+         last--;
+      int degree = powers[first] - powers[last];
+      if(degree == 0)
+         return 0;
+
+      // work with base 2 logarithms, so coefficients too large for a double are handled
+      double logLead = log2((reverse ? coeffs[last] : coeffs[first]).abs());
+      double maxLogRatio = Double.NEGATIVE_INFINITY, maxLogFujiwara = Double.NEGATIVE_INFINITY;
+      for(int j = first + 1; j <= last; j++) {
+         int term = reverse ? last - (j - first) : j;
+         int i = reverse ? powers[term] - powers[last] : powers[first] - powers[term];
+         double logRatio = log2(coeffs[term].abs()) - logLead;
+         maxLogRatio = Math.max(maxLogRatio, logRatio);
+         if(i == degree)
+            logRatio -= 1;
+         maxLogFujiwara = Math.max(maxLogFujiwara, logRatio / i);
+      }
+      return Math.min(1 + Math.pow(2, maxLogRatio), 2 * Math.pow(2, maxLogFujiwara));
+   }
+
+   /**
+    * Finds the powers of the coefficients of a dense polynomial.
+    * @param coeffs the coefficients of the polynomial, in order of decreasing power.
+    * @return the power of each coefficient, in decreasing order.
+    */
+   private static int[] densePowers(BigInteger[] coeffs) {
+      int[] powers = new int[coeffs.length];
+      for(int i = 0; i < powers.length; i++)
+         powers[i] = coeffs.length - 1 - i;
+      return powers;
+   }
+
+   /**
+    * Computes the base 2 logarithm of the given non-negative integer.
+    * @param num the integer to be processed.
+    * @return the base 2 logarithm of the integer, or negative infinity if it is zero.
+    */
+   private static double log2(BigInteger num) {
+      if(num.signum() == 0)
+         return Double.NEGATIVE_INFINITY;
+      int shift = Math.max(num.bitLength() - 64, 0);
+      return Math.log(num.shiftRight(shift).doubleValue()) / Math.log(2) + shift;
+   }
+}
@@ -0,0 +1,297 @@
+package version3.utilities;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Class representing an immutable univariate polynomial with integer coefficients,
+ * stored sparsely as its non-zero terms in order of decreasing power, so that lacunary
+ * polynomials such as x^1000000 - 1 take space and time proportional to their number
+ * of terms rather than their degree.
+ * @author Nathan Harbison
+ */
+public final class SparsePolynomial {
+   /** The powers of the non-zero terms, in decreasing order. */
+   private final int[] powers;
+   /** The non-zero coefficients of the terms, in the same order as their powers. */
+   private final BigInteger[] coeffs;
+
+   /**
+    * Instantiates a polynomial with the given terms, which are not copied.
+    * @param powers the powers of the non-zero terms, in decreasing order.
+    * @param coeffs the non-zero coefficients of the terms.
+    */
+   private SparsePolynomial(int[] powers, BigInteger[] coeffs) {
+      this.powers = powers;
+      this.coeffs = coeffs;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Conversions
+
+   /**
+    * Creates the polynomial represented by the given expression in one variable,
+    * combining terms of equal power and dropping those with a coefficient of zero.
+    * @param exp the expression, whose only variable (if any) is the given variable.
+    * @param var the variable of the polynomial.
+    * @return the polynomial represented by the expression.
+    * @throws IllegalArgumentException if the expression contains another variable.
+    */
+   public static SparsePolynomial fromExpression(Expression exp, char var) {
+      SortedMap<Integer, BigInteger> terms = new TreeMap<>(Comparator.reverseOrder());
+      for(int i = 0; i < exp.size(); i++) {
+         int power = exp.getPower(i, var);
+         if(exp.getTerm(i).getMonomial().size() > (power > 0 ? 1 : 0))
+            throw new IllegalArgumentException("Error: not a polynomial expression with one variable");
+         terms.merge(power, exp.getCoeff(i), BigInteger::add);
+      }
+      terms.values().removeIf(coeff -> coeff.signum() == 0);
+
+      int[] powers = new int[terms.size()];
+      BigInteger[] coeffs = new BigInteger[terms.size()];
+      int ind = 0;
+      for(Map.Entry<Integer, BigInteger> term : terms.entrySet()) {
+         powers[ind] = term.getKey();
+         coeffs[ind++] = term.getValue();
+      }
+      return new SparsePolynomial(powers, coeffs);
+   }
+
+   /**
+    * Creates the sparse representation of the given polynomial.
+    * @param poly the polynomial.
+    * @return the polynomial, with only its non-zero terms stored.
+    */
+   public static SparsePolynomial fromDense(Polynomial poly) {
+      int[] powers = new int[poly.nonZeroTerms()];
+      BigInteger[] coeffs = new BigInteger[powers.length];
+      int ind = 0;
+      for(int power = poly.degree(); power >= 0; power--) {
+         if(poly.getCoeff(power).signum() != 0) {
+            powers[ind] = power;
+            coeffs[ind++] = poly.getCoeff(power);
+         }
+      }
+      return new SparsePolynomial(powers, coeffs);
+   }
+
+   /**
+    * Creates the expression representing the polynomial in the given variable, with terms of
+    * decreasing power.
+    * @param var the variable of the expression.
+    * @return the expression representing the polynomial.
+    */
+   public Expression toExpression(char var) {
+      Expression exp = new Expression();
+      for(int i = 0; i < this.powers.length; i++)
+         exp.addTerm(new Term(this.coeffs[i], this.powers[i] == 0 ? Monomial.ONE : Monomial.ONE.withPower(var, this.powers[i])));
+      return exp;
+   }
+
+   /**
+    * Creates the dense representation of the polynomial.
+    * @return the polynomial, with a coefficient for every power up to its degree.
+    */
+   public Polynomial toDense() {
+      BigInteger[] dense = new BigInteger[this.degree() + 1];
+      Arrays.fill(dense, BigInteger.ZERO);
+      for(int i = 0; i < this.powers.length; i++)
+         dense[this.powers[i]] = this.coeffs[i];
+      return Polynomial.fromAscending(dense);
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Accessors
+
+   /**
+    * Returns the degree of the polynomial.
+    * @return the degree of the polynomial, or -1 for the zero polynomial.
+    */
+   public int degree() {
+      return this.powers.length == 0 ? -1 : this.powers[0];
+   }
+
+   /**
+    * Returns the number of non-zero terms of the polynomial.
+    * @return the number of terms of the polynomial.
+    */
+   public int nonZeroTerms() {
+      return this.powers.length;
+   }
+
+   /**
+    * Returns the leading coefficient of the polynomial.
+    * @return the coefficient of the highest power, or zero for the zero polynomial.
+    */
+   public BigInteger leadingCoeff() {
+      return this.powers.length == 0 ? BigInteger.ZERO : this.coeffs[0];
+   }
+
+   /**
+    * Returns the constant coefficient of the polynomial.
+    * @return the coefficient of the zeroth power.
+    */
+   public BigInteger constantCoeff() {
+      int last = this.powers.length - 1;
+      return last >= 0 && this.powers[last] == 0 ? this.coeffs[last] : BigInteger.ZERO;
+   }
+
+   /**
+    * Returns the powers of the non-zero terms of the polynomial.
+    * @return a new array of the powers, in decreasing order.
+    */
+   public int[] getPowers() {
+      return this.powers.clone();
+   }
+
+   /**
+    * Returns the non-zero coefficients of the polynomial.
+    * @return a new array of the coefficients, in order of decreasing power.
+    */
+   public BigInteger[] getCoeffs() {
+      return this.coeffs.clone();
+   }
+
+   /**
+    * Returns the greatest common divisor of the powers of the non-zero terms, i.e. the
+    * largest g such that the polynomial is a polynomial in x^g.
+    * @return the gcd of the powers, or 0 if the polynomial is constant.
+    */
+   public int exponentGcd() {
+      long gcd = 0;
+      for(int power : this.powers) {
+         gcd = Functions.gcd(gcd, power);
+         if(gcd == 1)
+            break;
+      }
+      return (int) gcd;
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // Arithmetic
+
+   /**
+    * Substitutes y = x^g into the polynomial f(x) = h(x^g), dividing all of its powers by g.
+    * @param g a common divisor of the powers of the polynomial.
+    * @return the polynomial h.
+    * @throws IllegalArgumentException if g does not divide every power.
+    */
+   public SparsePolynomial divideExponents(int g) {
+      int[] newPowers = new int[this.powers.length];
+      for(int i = 0; i < this.powers.length; i++) {
+         if(g <= 0 || this.powers[i] % g != 0)
+            throw new IllegalArgumentException("Error: " + g + " does not divide every power");
+         newPowers[i] = this.powers[i] / g;
+      }
+      return new SparsePolynomial(newPowers, this.coeffs);
+   }
+
+   /**
+    * Substitutes x^k for x in the polynomial, multiplying all of its powers by k.
+    * @param k the (positive) power substituted.
+    * @return the polynomial f(x^k).
+    * @throws IllegalArgumentException if k is not positive, or a power overflows.
+    */
+   public SparsePolynomial multiplyExponents(int k) {
+      if(k <= 0)
+         throw new IllegalArgumentException("Error: power must be positive");
+      int[] newPowers = new int[this.powers.length];
+      for(int i = 0; i < this.powers.length; i++) {
+         try {
+            newPowers[i] = Math.multiplyExact(this.powers[i], k);
+         } catch(ArithmeticException e) {
+            throw new IllegalArgumentException("Error: power of x^" + this.powers[i] + " too large");
+         }
+      }
+      return new SparsePolynomial(newPowers, this.coeffs);
+   }
+
+   /**
+    * Determines if p/q is a root of the polynomial, by evaluating
+    * q^n * f(p/q) = a_n * p^n + ... + a_0 * q^n over its non-zero terms only, raising
+    * p and q to the gaps between consecutive powers.
+    * @param p the numerator of the possible root.
+    * @param q the (positive) denominator of the possible root.
+    * @return whether p/q is a root of the polynomial.
+    */
+   public boolean isRoot(BigInteger p, BigInteger q) {
+      if(this.powers.length == 0)
+         return true;
+      if(p.signum() == 0)
+         return this.constantCoeff().signum() == 0;
+      // the common factor p^(lowest power) does not affect whether the sum is zero
+      BigInteger eval = this.coeffs[0], qPow = BigInteger.ONE;
+      for(int i = 1; i < this.powers.length; i++) {
+         int gap = this.powers[i - 1] - this.powers[i];
+         qPow = qPow.multiply(q.pow(gap));
+         eval = eval.multiply(p.pow(gap)).add(this.coeffs[i].multiply(qPow));
+      }
+      return eval.signum() == 0;
+   }
+
+   /**
+    * Divides the polynomial by qx - p for a rational root p/q via synthetic division,
+    * if the division is exact with an integer quotient. The quotient is generally dense
+    * (e.g. (x^n - 1) / (x - 1) has every power below n), so it is returned densely.
+    * @param root the root p/q of the linear factor qx - p.
+    * @return the quotient of the division, or nothing if the division has a non-zero
+    * remainder or a fractional quotient.
+    */
+   public Optional<Polynomial> deflate(Fraction root) {
+      BigInteger p = root.getNum(), q = root.getDenom();
+      if(this.degree() < 1)
+         return Optional.empty();
+      // q * b_(i-1) = a_i + p * b_i, from the leading coefficient down
+      BigInteger[] quot = new BigInteger[this.degree()];
+      BigInteger carry = BigInteger.ZERO;
+      int term = 0;
+      for(int power = this.degree(); power >= 1; power--) {
+         BigInteger coeff = carry;
+         if(term < this.powers.length && this.powers[term] == power)
+            coeff = coeff.add(this.coeffs[term++]);
+         BigInteger[] quotRem = coeff.divideAndRemainder(q);
+         if(quotRem[1].signum() != 0)
+            return Optional.empty();
+         quot[power - 1] = quotRem[0];
+         carry = p.multiply(quotRem[0]);
+      }
+      if(this.constantCoeff().add(carry).signum() != 0)
+         return Optional.empty();
+      return Optional.of(Polynomial.fromAscending(quot));
+   }
+
+   // ---------------------------------------------------------------------------------------
+   // To-string and equality methods
+
+   /**
+    * Determines equality between the polynomial and another object,
+    * returning true if both are polynomials with the same terms.
+    * @return whether the object is an identical polynomial.
+    */
+   @Override
+   public boolean equals(Object obj) {
+      if(this == obj)
+         return true;
+      if(obj instanceof SparsePolynomial other)
+         return Arrays.equals(this.powers, other.powers) && Arrays.equals(this.coeffs, other.coeffs);
+      return false;
+   }
+
+   /**
+    * Hashes the given polynomial.
+    * @return a hash code for the given polynomial.
+    */
+   @Override
+   public int hashCode() {
+      return 31 * Arrays.hashCode(this.powers) + Arrays.hashCode(this.coeffs);
+   }
+
+   /**
+    * Returns a string representing the polynomial, in the variable x.
+    * @return a string representation of the polynomial.
+    */
+   @Override
+   public String toString() {
+      return this.powers.length == 0 ? "0" : this.toExpression('x').toString();
+   }
+}
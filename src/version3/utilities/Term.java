@@ -8,14 +8,11 @@ import java.util.*;
  * with integer coefficients and variables to integer powers.
  * @author Nathan Harbison
  */
-public class Term {
+public class Term implements Comparable<Term> {
     /** Coefficient of the term. */
     private BigInteger coefficient;
-    /** Map between each variable in the term and its power. */
-    private final Map<Character, Integer> vars;
-
-    /** All alphabetic characters that can be validly used as variables. */
-    private final static String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    /** The variables in the term and their powers, which is shared between copies of the term. */
+    private Monomial monomial;
 
     // ---------------------------------------------------------------------------------------
     // Constructors
@@ -30,12 +27,12 @@ public class Term {
     public Term(BigInteger coeff, String varStr) {
         this.coefficient = coeff;
         char[] chars = varStr.toCharArray();
-        this.vars = new HashMap<>();
+        Map<Character, Integer> vars = new HashMap<>();
         for(int i = 0; i < chars.length; i++) {
             if(Character.isLetter(chars[i])) {
                 // power of one - no caret character after
                 if(i + 1 == chars.length || chars[i + 1] != '^')
-                    this.vars.put(chars[i], 1);
+                    vars.put(chars[i], 1);
                 // caret character present - any greater integer power
                 else {
                     int endOfPower = i + 2; // find end of the integer power in string
@@ -44,7 +41,7 @@ public class Term {
                     String powerStr = varStr.substring(i + 2, endOfPower);
                     try {
                         int power = Integer.parseInt(powerStr);
-                        this.vars.put(chars[i], power);
+                        vars.put(chars[i], power);
                     } catch(NumberFormatException ex) {
                         throw new IllegalArgumentException("Error: Non-integer power given as a variable:" + powerStr);
                     }
@@ -54,6 +51,7 @@ public class Term {
             } else
                 throw new IllegalArgumentException("Error: Non-alphabetic character used as a variable: " + chars[i]);
         }
+        this.monomial = Monomial.of(vars);
     }
 
     /**
@@ -62,8 +60,7 @@ public class Term {
      * @param vars variables of the term.
      */
     public Term(int coeff, Map<Character, Integer> vars) {
-        this.coefficient = BigInteger.valueOf(coeff);
-        this.vars = new HashMap<>(vars);
+        this(BigInteger.valueOf(coeff), vars);
     }
 
     /**
@@ -72,8 +69,17 @@ public class Term {
      * @param vars variables of the term.
      */
     public Term(BigInteger coeff, Map<Character, Integer> vars) {
+        this(coeff, Monomial.of(vars));
+    }
+
+    /**
+     * Creates a new Term object with a given coefficient and monomial.
+     * @param coeff coefficient of the term.
+     * @param monomial the variables of the term and their powers.
+     */
+    public Term(BigInteger coeff, Monomial monomial) {
         this.coefficient = coeff;
-        this.vars = new HashMap<>(vars);
+        this.monomial = monomial;
     }
 
     /**
@@ -81,7 +87,7 @@ public class Term {
      * @param term the term to be copied.
      */
     public Term(Term term) {
-        this(term.coefficient, term.vars);
+        this(term.coefficient, term.monomial);
     }
 
     // ---------------------------------------------------------------------------------------
@@ -108,7 +114,15 @@ public class Term {
      * @return whether the term is a constant.
      */
     public boolean isConstant() {
-        return this.vars.isEmpty();
+        return this.monomial.isConstant();
+    }
+
+    /**
+     * Gets and returns the term's variables and their powers.
+     * @return the monomial of the term.
+     */
+    public Monomial getMonomial() {
+        return this.monomial;
     }
 
     /**
@@ -118,9 +132,7 @@ public class Term {
      * @throws IllegalArgumentException if given an invalid non-alphabetic variable.
      */
     public int getPower(Character var) {
-        if(!Character.isLetter(var))
-            throw new IllegalArgumentException("Error: Invalid non-alphabetic variable " + var);
-        return this.vars.getOrDefault(var, 0);
+        return this.monomial.getPower(var);
     }
 
     /**
@@ -130,14 +142,7 @@ public class Term {
      * @throws IllegalArgumentException if given an invalid power (i.e. negative).
      */
     public void setPower(char var, int power) {
-        if(power < 0) {
-            throw new IllegalArgumentException("Invalid power: must be a non-negative integer.");
-        }
-        else if(power == 0) {
-            this.vars.remove(var);
-        } else {
-            this.vars.put(var, power);
-        }
+        this.monomial = this.monomial.withPower(var, power);
     }
 
     /**
@@ -145,7 +150,7 @@ public class Term {
      * @return the variables, mapped to their powers.
      */
     public Set<Character> getVariables() {
-        return new HashSet<>(this.vars.keySet());
+        return this.monomial.getVariables();
     }
 
     // ---------------------------------------------------------------------------------------
@@ -156,11 +161,7 @@ public class Term {
      * @return string expression of the term's variables.
      */
     public String getVarStr() {
-        StringBuilder varStr = new StringBuilder();
-        for(char var : ALPHABET.toCharArray())
-            if(this.vars.containsKey(var))
-                varStr.append(getOneVariable(var, this.vars.get(var)));
-        return varStr.toString();
+        return this.monomial.toString();
     }
 
     /**
@@ -190,7 +191,7 @@ public class Term {
         if(this.getCoeff().equals(BigInteger.ZERO))
             return "";
         String coeffStr = this.coefficient.toString();
-        if(this.coefficient.abs().equals(BigInteger.ONE) && !this.vars.isEmpty())
+        if(this.coefficient.abs().equals(BigInteger.ONE) && !this.monomial.isConstant())
             coeffStr = coeffStr.replaceAll("1", "");
         return coeffStr + this.getVarStr();
     }
@@ -208,7 +209,7 @@ public class Term {
             coeff = " + " + this.coefficient;
         else
             coeff = " - " + this.coefficient.abs();
-        if(this.coefficient.abs().equals(BigInteger.ONE) && !this.vars.isEmpty())
+        if(this.coefficient.abs().equals(BigInteger.ONE) && !this.monomial.isConstant())
             coeff = coeff.replaceAll("1", "");
         return coeff + getVarStr();
     }
@@ -223,7 +224,7 @@ public class Term {
         if(this == obj)
             return true;
         if(obj instanceof Term otherTerm) {
-            return this.toString().equals(otherTerm.toString());
+            return this.coefficient.equals(otherTerm.coefficient) && this.monomial.equals(otherTerm.monomial);
         }
         return false;
     }
@@ -234,7 +235,20 @@ public class Term {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(this.toString());
+        return 31 * this.coefficient.hashCode() + this.monomial.hashCode();
+    }
+
+    /**
+     * Compares the term to another, first by their monomials and then by their coefficients,
+     * giving a total order consistent with equality.
+     * @param other the term to be compared to.
+     * @return a negative integer, zero, or a positive integer as the term is less than,
+     * equal to, or greater than the other.
+     */
+    @Override
+    public int compareTo(Term other) {
+        int comparison = this.monomial.compareTo(other.monomial);
+        return comparison != 0 ? comparison : this.coefficient.compareTo(other.coefficient);
     }
 
     /**